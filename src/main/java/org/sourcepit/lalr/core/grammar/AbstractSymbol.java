@@ -25,11 +25,14 @@ public abstract class AbstractSymbol {
 
    private final String toString;
 
+   private final int hashCode;
+
    protected AbstractSymbol(SymbolType type, String toString) {
       notNull(type);
       this.type = type;
       notEmpty(toString);
       this.toString = toString;
+      this.hashCode = computeHashCode();
    }
 
    public SymbolType getType() {
@@ -39,6 +42,10 @@ public abstract class AbstractSymbol {
 
    @Override
    public int hashCode() {
+      return hashCode;
+   }
+
+   private int computeHashCode() {
       final int prime = 31;
       int result = 1;
       result = prime * result + ((toString == null) ? 0 : toString.hashCode());
@@ -58,6 +65,9 @@ public abstract class AbstractSymbol {
          return false;
       }
       AbstractSymbol other = (AbstractSymbol) obj;
+      if (hashCode != other.hashCode) {
+         return false;
+      }
       if (toString == null) {
          if (other.toString != null) {
             return false;
@@ -23,6 +23,7 @@ import static org.apache.commons.lang.Validate.notNull;
 import static org.sourcepit.lalr.core.grammar.Validate.noDupliatedElements;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -43,6 +44,14 @@ public class Grammar {
 
    private final Variable startSymbol;
 
+   private final AbstractSymbol[] symbols;
+
+   private final Map<AbstractSymbol, Integer> symbolToId;
+
+   private final Map<String, Variable> nameToVariable;
+
+   private final Map<Production, Integer> productionToIndex;
+
    public Grammar(Syntax syntax, List<Production> productions) {
       this(syntax, productions, productions.get(0).getLeftSide());
    }
@@ -92,10 +101,35 @@ public class Grammar {
       this.syntax = syntax;
       this.variables = unmodifiableList(new ArrayList<>(variables));
       this.terminals = unmodifiableList(new ArrayList<>(terminals));
-      this.productions = productions;
+      this.productions = unmodifiableList(new ArrayList<>(productions));
       this.variableToProductions = toUnmodifiableProductionsMap(variableToProductions);
       notNull(startSymbol);
       this.startSymbol = startSymbol;
+
+      // terminals first, so that a terminal's id equals its index in the terminal list
+      this.symbols = new AbstractSymbol[terminals.size() + variables.size()];
+      this.symbolToId = new HashMap<>(symbols.length * 2);
+      int id = 0;
+      for (Terminal terminal : this.terminals) {
+         symbols[id] = terminal;
+         symbolToId.put(terminal, Integer.valueOf(id));
+         id++;
+      }
+      for (Variable variable : this.variables) {
+         symbols[id] = variable;
+         symbolToId.put(variable, Integer.valueOf(id));
+         id++;
+      }
+
+      this.nameToVariable = new HashMap<>(this.variables.size() * 2);
+      for (Variable variable : this.variables) {
+         nameToVariable.put(variable.toString(), variable);
+      }
+
+      this.productionToIndex = new HashMap<>(this.productions.size() * 2);
+      for (int i = 0; i < this.productions.size(); i++) {
+         productionToIndex.put(this.productions.get(i), Integer.valueOf(i));
+      }
    }
 
    public Syntax getSyntax() {
@@ -116,22 +150,32 @@ public class Grammar {
    }
 
    public Variable getVariable(String str) {
-      for (Variable symbol : getVariables()) {
-         if (str.equals(symbol.toString())) {
-            return symbol;
-         }
-      }
-      return null;
+      return nameToVariable.get(str);
+   }
+
+   public int indexOf(Variable variable) {
+      final Integer id = symbolToId.get(variable);
+      return id == null ? -1 : id.intValue() - terminals.size();
    }
 
    public List<Terminal> getTerminals() {
       return terminals;
    }
 
+   public int indexOf(Terminal terminal) {
+      final Integer id = symbolToId.get(terminal);
+      return id == null ? -1 : id.intValue();
+   }
+
    public List<Production> getProductions() {
       return productions;
    }
 
+   public int indexOf(Production production) {
+      final Integer index = productionToIndex.get(production);
+      return index == null ? -1 : index.intValue();
+   }
+
    public List<Production> getProductions(Variable variable) {
       return variableToProductions.get(variable);
    }
@@ -140,6 +184,23 @@ public class Grammar {
       return startSymbol;
    }
 
+   public int getSymbolCount() {
+      return symbols.length;
+   }
+
+   public int getSymbolId(AbstractSymbol symbol) {
+      final Integer id = symbolToId.get(symbol);
+      return id == null ? -1 : id.intValue();
+   }
+
+   public AbstractSymbol getSymbol(int symbolId) {
+      return symbols[symbolId];
+   }
+
+   public boolean isTerminal(int symbolId) {
+      return symbolId < terminals.size();
+   }
+
    @Override
    public String toString() {
       final StringBuilder str = new StringBuilder();
@@ -21,6 +21,7 @@ import static org.apache.commons.lang.Validate.noNullElements;
 import static org.apache.commons.lang.Validate.notEmpty;
 import static org.apache.commons.lang.Validate.notNull;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public final class Production {
@@ -30,13 +31,17 @@ public final class Production {
 
    private final String toString;
 
+   private final int hashCode;
+
    public Production(Variable leftSide, List<AbstractSymbol> rightSide, String toString) {
       notNull(leftSide);
       noNullElements(rightSide);
       notEmpty(toString);
       this.leftSide = leftSide;
-      this.rightSide = unmodifiableList(rightSide);
+      // copy, as the hash code is cached
+      this.rightSide = unmodifiableList(new ArrayList<>(rightSide));
       this.toString = toString;
+      this.hashCode = computeHashCode();
    }
 
    public Variable getLeftSide() {
@@ -53,6 +58,10 @@ public final class Production {
 
    @Override
    public int hashCode() {
+      return hashCode;
+   }
+
+   private int computeHashCode() {
       final int prime = 31;
       int result = 1;
       result = prime * result + ((leftSide == null) ? 0 : leftSide.hashCode());
@@ -73,6 +82,9 @@ public final class Production {
          return false;
       }
       Production other = (Production) obj;
+      if (hashCode != other.hashCode) {
+         return false;
+      }
       if (leftSide == null) {
          if (other.leftSide != null) {
             return false;
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.grammar;
+
+import static org.apache.commons.lang.Validate.isTrue;
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A set of terminals of a {@link Grammar} stored as bits indexed by {@link Grammar#indexOf(Terminal)}. Like the
+ * {@link Set Sets} used for first and follow sets, the set may contain <code>null</code> as marker for the empty
+ * word. The marker occupies the bit right after the last terminal.
+ */
+public final class TerminalSet extends AbstractSet<Terminal> {
+
+   private final Grammar grammar;
+
+   private final int emptyIndex;
+
+   private final long[] words;
+
+   public TerminalSet(Grammar grammar) {
+      notNull(grammar);
+      this.grammar = grammar;
+      this.emptyIndex = grammar.getTerminals().size();
+      this.words = new long[(emptyIndex >> 6) + 1];
+   }
+
+   public TerminalSet(TerminalSet terminals) {
+      this.grammar = terminals.grammar;
+      this.emptyIndex = terminals.emptyIndex;
+      this.words = terminals.words.clone();
+   }
+
+   public Grammar getGrammar() {
+      return grammar;
+   }
+
+   /**
+    * @return the bit index of the empty word marker, which equals the number of terminals of the grammar
+    */
+   public int getEmptyIndex() {
+      return emptyIndex;
+   }
+
+   public boolean add(int terminal) {
+      final int wordIndex = terminal >> 6;
+      final long mask = 1L << terminal;
+      final long word = words[wordIndex];
+      words[wordIndex] = word | mask;
+      return (word & mask) == 0;
+   }
+
+   @Override
+   public boolean add(Terminal terminal) {
+      return add(toIndex(terminal));
+   }
+
+   public boolean addEmpty() {
+      return add(emptyIndex);
+   }
+
+   public boolean contains(int terminal) {
+      return (words[terminal >> 6] & (1L << terminal)) != 0;
+   }
+
+   @Override
+   public boolean contains(Object o) {
+      if (o == null) {
+         return containsEmpty();
+      }
+      if (!(o instanceof Terminal)) {
+         return false;
+      }
+      final int terminal = grammar.indexOf((Terminal) o);
+      return terminal > -1 && contains(terminal);
+   }
+
+   public boolean containsEmpty() {
+      return contains(emptyIndex);
+   }
+
+   public boolean remove(int terminal) {
+      final int wordIndex = terminal >> 6;
+      final long mask = 1L << terminal;
+      final long word = words[wordIndex];
+      words[wordIndex] = word & ~mask;
+      return (word & mask) != 0;
+   }
+
+   @Override
+   public boolean remove(Object o) {
+      if (o == null) {
+         return removeEmpty();
+      }
+      if (!(o instanceof Terminal)) {
+         return false;
+      }
+      final int terminal = grammar.indexOf((Terminal) o);
+      return terminal > -1 && remove(terminal);
+   }
+
+   public boolean removeEmpty() {
+      return remove(emptyIndex);
+   }
+
+   /**
+    * Adds all elements of the given set, including the empty word marker.
+    *
+    * @return <code>true</code> if this set changed
+    */
+   public boolean addAll(TerminalSet terminals) {
+      checkCompatible(terminals);
+      long changed = 0L;
+      for (int i = 0; i < words.length; i++) {
+         final long word = words[i];
+         final long union = word | terminals.words[i];
+         changed |= word ^ union;
+         words[i] = union;
+      }
+      return changed != 0L;
+   }
+
+   /**
+    * Adds all terminals of the given set but not the empty word marker.
+    *
+    * @return <code>true</code> if this set changed
+    */
+   public boolean addAllTerminals(TerminalSet terminals) {
+      checkCompatible(terminals);
+      final int emptyWord = emptyIndex >> 6;
+      long changed = 0L;
+      for (int i = 0; i < words.length; i++) {
+         long other = terminals.words[i];
+         if (i == emptyWord) {
+            other &= ~(1L << emptyIndex);
+         }
+         final long word = words[i];
+         final long union = word | other;
+         changed |= word ^ union;
+         words[i] = union;
+      }
+      return changed != 0L;
+   }
+
+   /**
+    * Adds all terminals of the given set but not the empty word marker (<code>null</code>).
+    *
+    * @return <code>true</code> if this set changed
+    */
+   public boolean addAllTerminals(Set<Terminal> terminals) {
+      if (terminals instanceof TerminalSet) {
+         return addAllTerminals((TerminalSet) terminals);
+      }
+      boolean changed = false;
+      for (Terminal terminal : terminals) {
+         if (terminal != null) {
+            changed |= add(terminal);
+         }
+      }
+      return changed;
+   }
+
+   /**
+    * Removes all elements of the given set, including the empty word marker.
+    *
+    * @return <code>true</code> if this set changed
+    */
+   public boolean removeAll(TerminalSet terminals) {
+      checkCompatible(terminals);
+      long changed = 0L;
+      for (int i = 0; i < words.length; i++) {
+         final long word = words[i];
+         final long difference = word & ~terminals.words[i];
+         changed |= word ^ difference;
+         words[i] = difference;
+      }
+      return changed != 0L;
+   }
+
+   /**
+    * @return <code>true</code> if both sets have at least one element, including the empty word marker, in common
+    */
+   public boolean intersects(TerminalSet terminals) {
+      checkCompatible(terminals);
+      for (int i = 0; i < words.length; i++) {
+         if ((words[i] & terminals.words[i]) != 0L) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * @return the index of the first terminal (or the empty word marker) that is contained in this set and whose index
+    *         is equal or greater than <code>fromIndex</code> or <code>-1</code> if there is no such element
+    */
+   public int nextIndex(int fromIndex) {
+      int wordIndex = fromIndex >> 6;
+      if (wordIndex >= words.length) {
+         return -1;
+      }
+      long word = words[wordIndex] & (-1L << fromIndex);
+      while (true) {
+         if (word != 0) {
+            return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+         }
+         if (++wordIndex == words.length) {
+            return -1;
+         }
+         word = words[wordIndex];
+      }
+   }
+
+   @Override
+   public int size() {
+      int size = 0;
+      for (long word : words) {
+         size += Long.bitCount(word);
+      }
+      return size;
+   }
+
+   @Override
+   public boolean isEmpty() {
+      for (long word : words) {
+         if (word != 0L) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   @Override
+   public void clear() {
+      Arrays.fill(words, 0L);
+   }
+
+   @Override
+   public Iterator<Terminal> iterator() {
+      return new Iterator<Terminal>() {
+         private int next = nextIndex(0);
+
+         private int last = -1;
+
+         @Override
+         public boolean hasNext() {
+            return next > -1;
+         }
+
+         @Override
+         public Terminal next() {
+            if (next < 0) {
+               throw new NoSuchElementException();
+            }
+            last = next;
+            next = nextIndex(next + 1);
+            return last == emptyIndex ? null : grammar.getTerminals().get(last);
+         }
+
+         @Override
+         public void remove() {
+            if (last < 0) {
+               throw new IllegalStateException();
+            }
+            TerminalSet.this.remove(last);
+            last = -1;
+         }
+      };
+   }
+
+   /**
+    * Hashes the bits of the set. Unlike {@link Set#hashCode()}, the hash code is only consistent with sets that are
+    * {@link #equals(Object) equal}, which are terminal sets of the same grammar.
+    */
+   @Override
+   public int hashCode() {
+      return Arrays.hashCode(words);
+   }
+
+   /**
+    * @return <code>true</code> if the given object is a terminal set of the same grammar containing the same
+    *         terminals. Unlike {@link Set#equals(Object)}, other set implementations are never equal.
+    */
+   @Override
+   public boolean equals(Object o) {
+      if (o == this) {
+         return true;
+      }
+      if (o instanceof TerminalSet && ((TerminalSet) o).grammar == grammar) {
+         return Arrays.equals(words, ((TerminalSet) o).words);
+      }
+      return false;
+   }
+
+   private int toIndex(Terminal terminal) {
+      if (terminal == null) {
+         return emptyIndex;
+      }
+      final int index = grammar.indexOf(terminal);
+      isTrue(index > -1, "Terminal is not part of the grammar: ", terminal);
+      return index;
+   }
+
+   private void checkCompatible(TerminalSet terminals) {
+      isTrue(terminals.grammar == grammar, "Terminal sets of different grammars");
+   }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.grammar.graph;
+
+import static org.apache.commons.lang.Validate.isTrue;
+
+import org.sourcepit.lalr.core.grammar.TerminalSet;
+
+/**
+ * The digraph algorithm of DeRemer and Pennello. Given a relation <code>R</code> and initial sets <code>F'(x)</code>
+ * it computes <code>F(x) = F'(x) &#x222a; &#x22c3;{F(y) | x R y}</code> for all nodes in a single traversal that
+ * collapses strongly connected components. The traversal uses an explicit stack, so its depth is not limited by the
+ * thread's stack size.
+ */
+public final class Digraph {
+
+   private Digraph() {
+      super();
+   }
+
+   /**
+    * @param relation the successors of every node, <code>relation[x]</code> contains all <code>y</code> with
+    *           <code>x R y</code>
+    * @param sets the initial set of every node, which is replaced in place by its final set
+    */
+   public static void traverse(int[][] relation, TerminalSet[] sets) {
+      traverse(relation, sets, false);
+   }
+
+   /**
+    * @param relation the successors of every node, <code>relation[x]</code> contains all <code>y</code> with
+    *           <code>x R y</code>
+    * @param sets the initial set of every node, which is replaced in place by its final set
+    * @param shareComponents if <code>true</code>, all nodes of a strongly connected component refer to the same set
+    *           afterwards instead of a copy of it, so the sets must not be modified individually afterwards
+    */
+   public static void traverse(int[][] relation, TerminalSet[] sets, boolean shareComponents) {
+      isTrue(relation.length == sets.length);
+      final int nodeCount = relation.length;
+      final int[] n = new int[nodeCount];
+
+      final int[] stack = new int[nodeCount];
+      int sp = 0;
+
+      final int[] callNode = new int[nodeCount];
+      final int[] callEdge = new int[nodeCount];
+      final int[] callDepth = new int[nodeCount];
+      int csp = 0;
+
+      for (int root = 0; root < nodeCount; root++) {
+         if (n[root] != 0) {
+            continue;
+         }
+
+         stack[sp++] = root;
+         n[root] = sp;
+         callNode[csp] = root;
+         callEdge[csp] = 0;
+         callDepth[csp] = sp;
+         csp++;
+
+         while (csp > 0) {
+            final int x = callNode[csp - 1];
+            final int[] successors = relation[x];
+            final int edge = callEdge[csp - 1];
+            if (edge < successors.length) {
+               final int y = successors[edge];
+               if (n[y] == 0) {
+                  stack[sp++] = y;
+                  n[y] = sp;
+                  callNode[csp] = y;
+                  callEdge[csp] = 0;
+                  callDepth[csp] = sp;
+                  csp++;
+               }
+               else {
+                  n[x] = Math.min(n[x], n[y]);
+                  sets[x].addAll(sets[y]);
+                  callEdge[csp - 1]++;
+               }
+               continue;
+            }
+
+            // all successors of x visited
+            if (n[x] == callDepth[csp - 1]) {
+               int top;
+               do {
+                  top = stack[--sp];
+                  n[top] = Integer.MAX_VALUE;
+                  if (top != x) {
+                     if (shareComponents) {
+                        sets[top] = sets[x];
+                     }
+                     else {
+                        sets[top].addAll(sets[x]);
+                     }
+                  }
+               }
+               while (top != x);
+            }
+            csp--;
+
+            if (csp > 0) {
+               final int parent = callNode[csp - 1];
+               n[parent] = Math.min(n[parent], n[x]);
+               sets[parent].addAll(sets[x]);
+               callEdge[csp - 1]++;
+            }
+         }
+      }
+   }
+}
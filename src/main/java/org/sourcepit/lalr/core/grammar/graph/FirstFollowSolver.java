@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.grammar.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sourcepit.lalr.core.grammar.AbstractSymbol;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.Terminal;
+import org.sourcepit.lalr.core.grammar.TerminalSet;
+import org.sourcepit.lalr.core.grammar.Variable;
+
+/**
+ * Determines nullable, first and follow sets of all variables of a {@link GrammarGraph} as {@link TerminalSet
+ * TerminalSets}. Unlike the visitors, recursive grammars are supported. Like the visitors, the first set of a nullable
+ * variable contains <code>null</code> and the follow sets of variables that may end the input contain
+ * <code>null</code> for the end of input.
+ * <p>
+ * First and follow sets are closed under their inclusion relations with the {@link Digraph} algorithm, which resolves
+ * every strongly connected component of mutually including variables in one pass. Variables of such a component share
+ * one set object, except for first sets of nullable variables. A set operation costs <code>|T|/64</code> word
+ * operations.
+ */
+public final class FirstFollowSolver {
+
+   private FirstFollowSolver() {
+      super();
+   }
+
+   /**
+    * Determines the nullable, first and follow sets of all variable nodes of the graph and stores them in the nodes.
+    */
+   public static void solve(GrammarGraph graph) {
+      final Grammar grammar = graph.getGrammar();
+      final List<Variable> variables = grammar.getVariables();
+      final VariableNode[] nodes = new VariableNode[variables.size()];
+      for (int i = 0; i < nodes.length; i++) {
+         nodes[i] = graph.getVariableNode(variables.get(i));
+      }
+
+      final boolean[] nullable = determineNullable(grammar);
+
+      final TerminalSet[] first = determineFirst(grammar, nodes, nullable);
+
+      final TerminalSet[] follow = determineFollow(grammar, nodes, nullable, first);
+
+      for (int i = 0; i < nodes.length; i++) {
+         nodes[i].setNullable(nullable[i]);
+         if (nullable[i]) {
+            // the first set may be shared with variables that are not nullable
+            first[i] = new TerminalSet(first[i]);
+            first[i].addEmpty();
+         }
+         nodes[i].setFirstSet(first[i]);
+         nodes[i].setFollowSet(follow[i]);
+      }
+   }
+
+   /**
+    * A variable is nullable if one of its productions has no symbol that is not nullable. Every production counts its
+    * symbols that are not known to be nullable and every variable that becomes nullable decrements the counters of
+    * the productions that reference it.
+    *
+    * @return for every variable, indexed by {@link Grammar#indexOf(Variable)}, whether it is nullable
+    */
+   public static boolean[] determineNullable(Grammar grammar) {
+      final int variableCount = grammar.getVariables().size();
+      final List<Production> productions = grammar.getProductions();
+      final boolean[] nullable = new boolean[variableCount];
+      final int[] pending = new int[productions.size()];
+      final int[][] occurrences = new int[variableCount][];
+      final int[] occurrenceCounts = new int[variableCount];
+      for (Production production : productions) {
+         for (AbstractSymbol symbol : production.getRightSide()) {
+            if (symbol instanceof Variable) {
+               occurrenceCounts[grammar.indexOf((Variable) symbol)]++;
+            }
+         }
+      }
+      for (int i = 0; i < variableCount; i++) {
+         occurrences[i] = new int[occurrenceCounts[i]];
+         occurrenceCounts[i] = 0;
+      }
+
+      final int[] worklist = new int[variableCount];
+      int size = 0;
+      for (int p = 0; p < pending.length; p++) {
+         final Production production = productions.get(p);
+         final List<AbstractSymbol> rightSide = production.getRightSide();
+         pending[p] = rightSide.size();
+         for (AbstractSymbol symbol : rightSide) {
+            if (symbol instanceof Variable) {
+               final int v = grammar.indexOf((Variable) symbol);
+               occurrences[v][occurrenceCounts[v]++] = p;
+            }
+         }
+         final int leftSide = grammar.indexOf(production.getLeftSide());
+         if (pending[p] == 0 && !nullable[leftSide]) {
+            nullable[leftSide] = true;
+            worklist[size++] = leftSide;
+         }
+      }
+
+      while (size > 0) {
+         final int v = worklist[--size];
+         for (int p : occurrences[v]) {
+            if (--pending[p] == 0) {
+               final int leftSide = grammar.indexOf(productions.get(p).getLeftSide());
+               if (!nullable[leftSide]) {
+                  nullable[leftSide] = true;
+                  worklist[size++] = leftSide;
+               }
+            }
+         }
+      }
+      return nullable;
+   }
+
+   /**
+    * The first set of a variable includes the terminals and the first sets of the variables that begin its
+    * productions after a nullable prefix. The empty word is added by the caller.
+    */
+   private static TerminalSet[] determineFirst(Grammar grammar, VariableNode[] nodes, boolean[] nullable) {
+      final TerminalSet[] first = newTerminalSets(grammar, nodes.length);
+      final List<List<Integer>> includes = newRelation(nodes.length);
+      for (int i = 0; i < nodes.length; i++) {
+         for (ProductionNode production : nodes[i].getProductionNodes()) {
+            for (AbstractSymbolNode symbolNode : production.getRightSideNodes()) {
+               if (symbolNode instanceof TerminalNode) {
+                  first[i].add(grammar.indexOf((Terminal) symbolNode.getSymbol()));
+                  break;
+               }
+               final int v = indexOf(grammar, symbolNode);
+               if (v != i) {
+                  includes.get(i).add(v);
+               }
+               if (!nullable[v]) {
+                  break;
+               }
+            }
+         }
+      }
+      Digraph.traverse(toArray(includes), first, true);
+      return first;
+   }
+
+   /**
+    * The follow set of a variable includes the first sets of the symbols that follow it in a production and, if the
+    * rest of the production is nullable, the follow set of the left side.
+    */
+   private static TerminalSet[] determineFollow(Grammar grammar, VariableNode[] nodes, boolean[] nullable,
+      TerminalSet[] first) {
+      final TerminalSet[] follow = newTerminalSets(grammar, nodes.length);
+      follow[grammar.indexOf(grammar.getStartSymbol())].addEmpty();
+      final List<List<Integer>> includes = newRelation(nodes.length);
+      for (int i = 0; i < nodes.length; i++) {
+         for (ProductionNode production : nodes[i].getProductionNodes()) {
+            final List<AbstractSymbolNode> rightSide = production.getRightSideNodes();
+            // the first set of the rest of the production, built from right to left
+            final TerminalSet rest = new TerminalSet(grammar);
+            boolean restNullable = true;
+            for (int j = rightSide.size() - 1; j >= 0; j--) {
+               final AbstractSymbolNode symbolNode = rightSide.get(j);
+               if (symbolNode instanceof TerminalNode) {
+                  rest.clear();
+                  rest.add(grammar.indexOf((Terminal) symbolNode.getSymbol()));
+                  restNullable = false;
+                  continue;
+               }
+               final int v = indexOf(grammar, symbolNode);
+               follow[v].addAllTerminals(rest);
+               if (restNullable && v != i) {
+                  includes.get(v).add(i);
+               }
+               if (!nullable[v]) {
+                  rest.clear();
+                  restNullable = false;
+               }
+               rest.addAll(first[v]);
+            }
+         }
+      }
+      Digraph.traverse(toArray(includes), follow, true);
+      return follow;
+   }
+
+   private static TerminalSet[] newTerminalSets(Grammar grammar, int count) {
+      final TerminalSet[] sets = new TerminalSet[count];
+      for (int i = 0; i < count; i++) {
+         sets[i] = new TerminalSet(grammar);
+      }
+      return sets;
+   }
+
+   private static List<List<Integer>> newRelation(int count) {
+      final List<List<Integer>> relation = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+         relation.add(new ArrayList<>());
+      }
+      return relation;
+   }
+
+   private static int[][] toArray(List<List<Integer>> relation) {
+      final int[][] result = new int[relation.size()][];
+      for (int i = 0; i < result.length; i++) {
+         final List<Integer> successors = relation.get(i);
+         result[i] = new int[successors.size()];
+         for (int j = 0; j < result[i].length; j++) {
+            result[i][j] = successors.get(j).intValue();
+         }
+      }
+      return result;
+   }
+
+   private static int indexOf(Grammar grammar, AbstractSymbolNode variableNode) {
+      return grammar.indexOf((Variable) variableNode.getSymbol());
+   }
+}
@@ -17,56 +17,139 @@
 package org.sourcepit.lalr.core.lr;
 
 import static java.util.Collections.singletonList;
+import static org.apache.commons.lang.Validate.notNull;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import org.sourcepit.lalr.core.grammar.AbstractSymbol;
 import org.sourcepit.lalr.core.grammar.Grammar;
 import org.sourcepit.lalr.core.grammar.Production;
 import org.sourcepit.lalr.core.grammar.Syntax;
+import org.sourcepit.lalr.core.grammar.Terminal;
 import org.sourcepit.lalr.core.grammar.Variable;
 
+/**
+ * Creates {@link LrStateGraph LR state graphs}. The states are numbered canonically: state <code>0</code> is the start
+ * state and all other states are numbered in breadth-first order of their discovery, where the transitions of every
+ * state are ordered by symbol id, that is variables in the order of {@link Grammar#getVariables()} followed by
+ * terminals in the order of {@link Grammar#getTerminals()}. Thus, the numbering depends neither on the iteration order
+ * of the maps returned by the goto function nor on whether the graph is created in parallel.
+ */
 public abstract class AbstractLrStateGraphFactory<C, I> {
 
    private final BiFunction<C, Set<I>, Set<I>> closureFunction;
 
    private final BiFunction<C, Set<I>, Map<AbstractSymbol, Set<I>>> gotoFunction;
 
+   private boolean kernelOnly;
+
+   private ForkJoinPool pool;
+
    public AbstractLrStateGraphFactory(BiFunction<C, Set<I>, Set<I>> closureFunction,
       BiFunction<C, Set<I>, Map<AbstractSymbol, Set<I>>> gotoFunction) {
       this.closureFunction = closureFunction;
       this.gotoFunction = gotoFunction;
    }
 
+   public boolean isKernelOnly() {
+      return kernelOnly;
+   }
+
+   /**
+    * If set to <code>true</code>, the created state graphs store only the kernel items of every state and close them
+    * on demand. This requires {@link #getKernel(Object, Set)} to be implemented.
+    */
+   public void setKernelOnly(boolean kernelOnly) {
+      this.kernelOnly = kernelOnly;
+   }
+
+   public ForkJoinPool getPool() {
+      return pool;
+   }
+
+   /**
+    * If set, the target states of all states of a frontier are computed in parallel on the given pool. This requires
+    * the closure and goto functions to be thread-safe. The registration of the target states is sequential and in the
+    * same order as without a pool, so the resulting state graph is identical.
+    */
+   public void setPool(ForkJoinPool pool) {
+      this.pool = pool;
+   }
+
    public LrStateGraph<I> createStateGraph(C context) {
+      return createStateGraph(context, LrStateGraphMonitor.NULL);
+   }
+
+   /**
+    * Creates the state graph by processing the discovered states breadth-first, one frontier at a time, so states are
+    * numbered in order of their distance to the start state.
+    *
+    * @throws CancellationException if the monitor requests cancellation
+    */
+   public LrStateGraph<I> createStateGraph(C context, LrStateGraphMonitor monitor) {
+      notNull(monitor);
 
       final LrStateGraph<I> stateGraph = new LrStateGraph<>();
-      final List<Set<I>> states = stateGraph.getStates();
       final List<Map<AbstractSymbol, Integer>> transitions = stateGraph.getTransitions();
 
       final Production startProduction = getStartProduction(context);
       stateGraph.setDerivedStartSymbol(startProduction.getLeftSide());
-      
+
+      final LrStateRegistry<I> registry = newStateRegistry(context);
+
       final I startItem = newStartItem(context, startProduction);
-      final Set<I> currentState = closureFunction.apply(context, Collections.singleton(startItem));
+      final Set<I> currentState = ItemSet.of(closureFunction.apply(context, Collections.singleton(startItem)));
 
-      states.add(currentState);
+      registry.register(kernelOnly ? getKernel(context, currentState) : currentState);
       transitions.add(new LinkedHashMap<>());
 
-      createStateGraph(context, states, transitions, currentState);
+      createStateGraph(context, registry, stateGraph, monitor);
+
+      final List<Set<I>> states;
+      if (kernelOnly) {
+         stateGraph.setClosureFunction(kernel -> closure(context, kernel));
+         states = stateGraph.getKernels();
+      }
+      else {
+         states = stateGraph.getStates();
+      }
+      for (int i = 0; i < registry.size(); i++) {
+         states.add(registry.getState(i));
+      }
 
       return stateGraph;
    }
 
+   private LrStateRegistry<I> newStateRegistry(C context) {
+      return new LrStateRegistry<>(getCoreFunction(context));
+   }
+
+   /**
+    * Returns the function that computes the core of a state, which is used to index states by their core. The default
+    * implementation returns <code>null</code>, which disables the core index.
+    */
+   protected Function<Set<I>, ?> getCoreFunction(C context) {
+      return null;
+   }
+
    private Production getStartProduction(C context) {
-      final Grammar grammar = getGrammar(context);
+      return newStartProduction(getGrammar(context));
+   }
+
+   public static Production newStartProduction(Grammar grammar) {
       final Variable startSymbol = grammar.getStartSymbol();
       final Variable derivedStartSymbol = derivedVariable(grammar, startSymbol, "start");
       final Production startProduction = new Production(derivedStartSymbol, singletonList(startSymbol),
@@ -74,6 +157,14 @@ public abstract class AbstractLrStateGraphFactory<C, I> {
       return startProduction;
    }
 
+   /**
+    * Returns the kernel items of a closed state, which are the start item and all items whose dot is not at the
+    * beginning. The default implementation returns the state itself.
+    */
+   protected Set<I> getKernel(C context, Set<I> state) {
+      return state;
+   }
+
    protected abstract Grammar getGrammar(C context);
 
    protected abstract I newStartItem(C context, Production startProduction);
@@ -82,32 +173,171 @@ public abstract class AbstractLrStateGraphFactory<C, I> {
       final Syntax syntax = grammar.getSyntax();
       Variable derivedVariable = syntax.derivedVariable(context, name);
       int i = 1;
-      while (grammar.getVariables().contains(derivedVariable)) {
+      while (grammar.indexOf(derivedVariable) > -1) {
          derivedVariable = syntax.derivedVariable(context, name + i);
          i++;
       }
       return derivedVariable;
    }
 
-   private void createStateGraph(C context, List<Set<I>> states, List<Map<AbstractSymbol, Integer>> transitions,
-      Set<I> currentState) {
-      final Map<AbstractSymbol, Integer> currentTransitions = transitions.get(states.indexOf(currentState));
-      final Map<AbstractSymbol, Set<I>> symbolToTargetState = gotoFunction.apply(context, currentState);
-      final Set<Set<I>> newStates = new LinkedHashSet<>();
-      for (Entry<AbstractSymbol, Set<I>> entry : symbolToTargetState.entrySet()) {
-         final AbstractSymbol symbol = entry.getKey();
-         final Set<I> targetState = entry.getValue();
-         int idx = states.indexOf(targetState);
-         if (idx < 0) {
-            idx = states.size();
-            states.add(targetState);
-            transitions.add(currentTransitions);
-            newStates.add(targetState);
+   private void createStateGraph(C context, LrStateRegistry<I> registry, LrStateGraph<I> stateGraph,
+      LrStateGraphMonitor monitor) {
+      final List<Map<AbstractSymbol, Integer>> transitions = stateGraph.getTransitions();
+      final BitSet queued = new BitSet();
+      final BitSet changed = new BitSet();
+      final Comparator<AbstractSymbol> symbolOrder = newSymbolOrder(getGrammar(context));
+      List<Integer> frontier = new ArrayList<>();
+      frontier.add(0);
+      queued.set(0);
+      int statesProcessed = 0;
+      long itemsProcessed = 0;
+      while (!frontier.isEmpty()) {
+         // states of the frontier that change by a merge have to be reprocessed in the next frontier
+         for (int state : frontier) {
+            queued.clear(state);
+            changed.clear(state);
+         }
+         final List<Successors<I>> frontierSuccessors = getSuccessors(context, registry, frontier, symbolOrder);
+         final List<Integer> nextFrontier = new ArrayList<>();
+         for (int i = 0; i < frontier.size(); i++) {
+            if (monitor.isCanceled()) {
+               throw new CancellationException();
+            }
+            final Successors<I> successors = frontierSuccessors.get(i);
+            final Map<AbstractSymbol, Integer> currentTransitions = transitions.get(frontier.get(i));
+            for (Entry<AbstractSymbol, Set<I>> entry : successors.targetStates.entrySet()) {
+               final Set<I> targetState = entry.getValue();
+               int idx = registry.indexOf(targetState);
+               if (idx < 0) {
+                  idx = merge(context, registry, stateGraph, targetState, changed);
+                  if (idx < 0) {
+                     idx = registry.register(targetState);
+                     transitions.add(new LinkedHashMap<>());
+                     changed.set(idx);
+                  }
+                  // only new states and states that changed by a merge have to be (re)processed
+                  if (changed.get(idx) && !queued.get(idx)) {
+                     changed.clear(idx);
+                     queued.set(idx);
+                     nextFrontier.add(idx);
+                  }
+               }
+               currentTransitions.put(entry.getKey(), idx);
+            }
+            statesProcessed++;
+            itemsProcessed += successors.items;
+            monitor.progress(registry.size(), statesProcessed, itemsProcessed);
+         }
+         frontier = nextFrontier;
+      }
+   }
+
+   private static final class Successors<I> {
+      final int items;
+
+      final Map<AbstractSymbol, Set<I>> targetStates;
+
+      Successors(int items, Map<AbstractSymbol, Set<I>> targetStates) {
+         this.items = items;
+         this.targetStates = targetStates;
+      }
+   }
+
+   /**
+    * Orders symbols by id, variables before terminals. Symbols that are not part of the grammar come last.
+    */
+   private static Comparator<AbstractSymbol> newSymbolOrder(Grammar grammar) {
+      final int variables = grammar.getVariables().size();
+      final int symbols = variables + grammar.getTerminals().size();
+      return Comparator.comparingInt(symbol -> {
+         final int index = symbol instanceof Terminal
+            ? grammar.indexOf((Terminal) symbol)
+            : grammar.indexOf((Variable) symbol);
+         return index < 0 ? symbols : symbol instanceof Terminal ? variables + index : index;
+      });
+   }
+
+   private List<Successors<I>> getSuccessors(C context, LrStateRegistry<I> registry, List<Integer> frontier,
+      Comparator<AbstractSymbol> symbolOrder) {
+      final List<Successors<I>> result = new ArrayList<>(frontier.size());
+      if (pool == null || frontier.size() == 1) {
+         for (int state : frontier) {
+            result.add(getSuccessors(context, registry.getState(state), symbolOrder));
          }
-         currentTransitions.put(symbol, idx);
+         return result;
+      }
+      final List<ForkJoinTask<Successors<I>>> tasks = new ArrayList<>(frontier.size());
+      for (int state : frontier) {
+         final Set<I> items = registry.getState(state);
+         tasks.add(pool.submit(() -> getSuccessors(context, items, symbolOrder)));
       }
-      for (Set<I> newState : newStates) {
-         createStateGraph(context, states, transitions, newState);
+      for (ForkJoinTask<Successors<I>> task : tasks) {
+         result.add(task.join());
       }
+      return result;
+   }
+
+   /**
+    * @return the number of items of the closed state and its target states keyed by the symbols of the transitions
+    *         in symbol order
+    */
+   private Successors<I> getSuccessors(C context, Set<I> state, Comparator<AbstractSymbol> symbolOrder) {
+      final Set<I> currentItems = kernelOnly ? closure(context, state) : state;
+      final Map<AbstractSymbol, Set<I>> symbolToTargetState = gotoFunction.apply(context, currentItems);
+      final List<AbstractSymbol> symbols = new ArrayList<>(symbolToTargetState.keySet());
+      symbols.sort(symbolOrder);
+      final Map<AbstractSymbol, Set<I>> targetStates = new LinkedHashMap<>(symbols.size() * 2);
+      for (AbstractSymbol symbol : symbols) {
+         final Set<I> targetState = symbolToTargetState.get(symbol);
+         targetStates.put(symbol, kernelOnly ? getKernel(context, targetState) : ItemSet.of(targetState));
+      }
+      return new Successors<>(currentItems.size(), targetStates);
+   }
+
+   /**
+    * @param changed receives the number of the registered state if the merge replaced its item set
+    * @return the number of the registered state the new state was merged into or <code>-1</code>
+    */
+   private int merge(C context, LrStateRegistry<I> registry, LrStateGraph<I> stateGraph, Set<I> newState,
+      BitSet changed) {
+      final Function<Set<I>, ?> coreFunction = registry.getCoreFunction();
+      if (coreFunction == null) {
+         return -1;
+      }
+      for (int candidate : registry.getStatesWithCore(coreFunction.apply(newState))) {
+         final Set<I> registeredState = registry.getState(candidate);
+         final Set<I> merged = mergeStates(context, registeredState, newState);
+         if (merged == null) {
+            stateGraph.incrementRefusedMergeCount();
+         }
+         else {
+            stateGraph.incrementMergeCount();
+            final Set<I> mergedState = ItemSet.of(merged);
+            if (!mergedState.equals(registeredState)) {
+               final int existing = registry.indexOf(mergedState);
+               if (existing > -1) {
+                  return existing;
+               }
+               registry.replace(candidate, mergedState);
+               changed.set(candidate);
+            }
+            return candidate;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * Merges a newly discovered state into a registered state with the same core. Both item sets are kernels if the
+    * factory is {@link #isKernelOnly() kernel only}. The default implementation never merges.
+    *
+    * @return the item set of the merged state or <code>null</code> if the states must not be merged
+    */
+   protected Set<I> mergeStates(C context, Set<I> registeredState, Set<I> newState) {
+      return null;
+   }
+
+   protected Set<I> closure(C context, Set<I> items) {
+      return ItemSet.of(closureFunction.apply(context, items));
    }
 }
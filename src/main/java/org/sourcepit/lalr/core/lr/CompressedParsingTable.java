@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+
+/**
+ * A parsing table whose action and goto rows are packed into comb vectors by row displacement. The entry of
+ * <code>(state, column)</code> is stored at <code>next[base[state] + column]</code> if <code>check</code> holds the
+ * state at that position. Action rows fall back to the default action of their state, which is either
+ * {@link #ERROR} or the most frequent reduction of the state.
+ * <p>
+ * Use a {@link PrimitiveParsingTableAdapter} to access the table through the object API.
+ */
+public class CompressedParsingTable implements PrimitiveParsingTable {
+
+   private final Grammar grammar;
+
+   private final int[] actionBase, actionCheck, actionNext, defaultActions;
+
+   private final int[] gotoBase, gotoCheck, gotoNext;
+
+   private final int[] productionLengths, productionVariables;
+
+   private final BitSet consistentStates = new BitSet();
+
+   public CompressedParsingTable(Grammar grammar, int[] actionBase, int[] actionCheck, int[] actionNext,
+      int[] defaultActions, int[] gotoBase, int[] gotoCheck, int[] gotoNext) {
+      notNull(grammar);
+      this.grammar = grammar;
+      this.actionBase = actionBase;
+      this.actionCheck = actionCheck;
+      this.actionNext = actionNext;
+      this.defaultActions = defaultActions;
+      this.gotoBase = gotoBase;
+      this.gotoCheck = gotoCheck;
+      this.gotoNext = gotoNext;
+
+      // states without packed actions reduce by their default action regardless of the lookahead
+      for (int state = 0; state < defaultActions.length; state++) {
+         if (defaultActions[state] != ERROR) {
+            consistentStates.set(state);
+         }
+      }
+      for (int state : actionCheck) {
+         if (state > -1) {
+            consistentStates.clear(state);
+         }
+      }
+
+      final List<Production> productions = grammar.getProductions();
+      productionLengths = new int[productions.size()];
+      productionVariables = new int[productions.size()];
+      for (int i = 0; i < productionLengths.length; i++) {
+         productionLengths[i] = productions.get(i).getRightSide().size();
+         productionVariables[i] = grammar.indexOf(productions.get(i).getLeftSide());
+      }
+   }
+
+   public Grammar getGrammar() {
+      return grammar;
+   }
+
+   @Override
+   public int getStateCount() {
+      return actionBase.length;
+   }
+
+   @Override
+   public int getTerminalCount() {
+      return grammar.getTerminals().size();
+   }
+
+   @Override
+   public int getAction(int state, int terminal) {
+      final int idx = actionBase[state] + terminal;
+      if (idx >= 0 && idx < actionCheck.length && actionCheck[idx] == state) {
+         return actionNext[idx];
+      }
+      return defaultActions[state];
+   }
+
+   /**
+    * @return the default action of the state, which is either {@link #ERROR} or a reduction
+    */
+   public int getDefaultAction(int state) {
+      return defaultActions[state];
+   }
+
+   /**
+    * @return <code>true</code> if the state reduces by its default action without reading a lookahead
+    */
+   public boolean isConsistent(int state) {
+      return consistentStates.get(state);
+   }
+
+   @Override
+   public int getConsistentAction(int state) {
+      return consistentStates.get(state) ? defaultActions[state] : ERROR;
+   }
+
+   @Override
+   public int getGoto(int state, int variable) {
+      final int idx = gotoBase[state] + variable;
+      if (idx >= 0 && idx < gotoCheck.length && gotoCheck[idx] == state) {
+         return gotoNext[idx];
+      }
+      return -1;
+   }
+
+   @Override
+   public int getProductionLength(int production) {
+      return productionLengths[production];
+   }
+
+   @Override
+   public int getProductionVariable(int production) {
+      return productionVariables[production];
+   }
+
+   /**
+    * @return the number of <code>int</code> values that are used to store this table
+    */
+   public int getSize() {
+      return actionBase.length + actionCheck.length + actionNext.length + defaultActions.length + gotoBase.length
+         + gotoCheck.length + gotoNext.length;
+   }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.ACCEPT;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.ERROR;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.MASK_ACTION;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.MASK_DATA;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.REDUCE;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.SHIFT;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.commons.lang.Validate;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Terminal;
+import org.sourcepit.lalr.core.grammar.Variable;
+
+/**
+ * Builds a {@link CompressedParsingTable}. Conflicting actions are rejected with an {@link IllegalStateException}.
+ */
+public class CompressedParsingTableBuilder implements ParsingTableBuilder {
+
+   private boolean defaultReductions = true;
+
+   private Grammar grammar;
+
+   private int[][] actionRows, gotoRows;
+
+   private int[] defaultActions;
+
+   private int[] actionRow, gotoRow;
+
+   private int defaultAction;
+
+   private CompressedParsingTable parsingTable;
+
+   public boolean isDefaultReductions() {
+      return defaultReductions;
+   }
+
+   /**
+    * If set to <code>true</code> (the default), the most frequent reduction of every state without an explicit
+    * {@link #defaultReduce(int) default reduction} becomes its default action and is removed from the packed action
+    * row. This delays the detection of syntax errors until the next shift.
+    */
+   public void setDefaultReductions(boolean defaultReductions) {
+      this.defaultReductions = defaultReductions;
+   }
+
+   public CompressedParsingTable getParsingTable() {
+      return parsingTable;
+   }
+
+   @Override
+   public void startTable(Grammar grammar, int states) {
+      this.grammar = grammar;
+      actionRows = new int[states][];
+      gotoRows = new int[states][];
+      defaultActions = new int[states];
+      parsingTable = null;
+   }
+
+   @Override
+   public void startState(int state) {
+      actionRow = new int[grammar.getTerminals().size() + 1];
+      gotoRow = new int[grammar.getVariables().size()];
+      Arrays.fill(gotoRow, -1);
+      defaultAction = ERROR;
+   }
+
+   @Override
+   public void shift(Terminal terminal, int targetState) {
+      setAction(terminal, SHIFT, targetState);
+   }
+
+   @Override
+   public void reduce(Terminal terminal, int production) {
+      if (production == -1) {
+         setAction(terminal, ACCEPT, 0);
+      }
+      else {
+         setAction(terminal, REDUCE, production);
+      }
+   }
+
+   @Override
+   public void defaultReduce(int production) {
+      Validate.isTrue((production & MASK_ACTION) == 0);
+      final int action = REDUCE | production;
+      if (defaultAction != ERROR && defaultAction != action) {
+         throw new IllegalStateException("Conflict on default reduction: " + toString(defaultAction) + " and "
+            + toString(action));
+      }
+      defaultAction = action;
+   }
+
+   private void setAction(Terminal terminal, int type, int data) {
+      Validate.isTrue((data & MASK_ACTION) == 0);
+      final int column = terminal == null ? grammar.getTerminals().size() : grammar.indexOf(terminal);
+      final int action = type | data;
+      final int existing = actionRow[column];
+      if (existing != ERROR && existing != action) {
+         throw new IllegalStateException("Conflict on " + (terminal == null ? "end of input" : terminal) + ": "
+            + toString(existing) + " and " + toString(action));
+      }
+      actionRow[column] = action;
+   }
+
+   private static String toString(int action) {
+      final int data = action & MASK_DATA;
+      switch (action & MASK_ACTION) {
+         case SHIFT :
+            return "shift " + data;
+         case REDUCE :
+            return "reduce " + data;
+         case ACCEPT :
+            return "accept";
+         default :
+            return "error";
+      }
+   }
+
+   @Override
+   public void jump(Variable variable, int targetState) {
+      gotoRow[grammar.indexOf(variable)] = targetState;
+   }
+
+   @Override
+   public void endState(int state) {
+      if (defaultAction == ERROR && defaultReductions) {
+         defaultAction = getMostFrequentReduction(actionRow);
+      }
+      defaultActions[state] = defaultAction;
+      if (defaultAction != ERROR) {
+         for (int i = 0; i < actionRow.length; i++) {
+            if (actionRow[i] == defaultAction) {
+               actionRow[i] = ERROR;
+            }
+         }
+      }
+      actionRows[state] = actionRow;
+      gotoRows[state] = gotoRow;
+      actionRow = null;
+      gotoRow = null;
+   }
+
+   private static int getMostFrequentReduction(int[] row) {
+      int result = ERROR;
+      int resultCount = 0;
+      for (int i = 0; i < row.length; i++) {
+         final int action = row[i];
+         if ((action & MASK_ACTION) == REDUCE && action != result) {
+            int count = 0;
+            for (int j = i; j < row.length; j++) {
+               if (row[j] == action) {
+                  count++;
+               }
+            }
+            if (count > resultCount) {
+               result = action;
+               resultCount = count;
+            }
+         }
+      }
+      return result;
+   }
+
+   @Override
+   public void endTable(Grammar grammar, int states) {
+      final int[] actionBase = new int[states];
+      final int[][] actionComb = pack(actionRows, ERROR, actionBase);
+      final int[] gotoBase = new int[states];
+      final int[][] gotoComb = pack(gotoRows, -1, gotoBase);
+      parsingTable = new CompressedParsingTable(grammar, actionBase, actionComb[0], actionComb[1], defaultActions,
+         gotoBase, gotoComb[0], gotoComb[1]);
+      actionRows = null;
+      gotoRows = null;
+      defaultActions = null;
+   }
+
+   /**
+    * Packs the rows by row displacement, densest rows first, each at the first base where none of its entries
+    * collides with an entry of a previously placed row.
+    *
+    * @return the check and the next vector
+    */
+   private static int[][] pack(int[][] rows, int empty, int[] base) {
+      final int[][] columns = new int[rows.length][];
+      final Integer[] order = new Integer[rows.length];
+      for (int state = 0; state < rows.length; state++) {
+         columns[state] = getColumns(rows[state], empty);
+         order[state] = Integer.valueOf(state);
+      }
+      Arrays.sort(order, (s1, s2) -> columns[s2.intValue()].length - columns[s1.intValue()].length);
+
+      final BitSet occupied = new BitSet();
+      int size = 0;
+      for (Integer s : order) {
+         final int state = s.intValue();
+         final int[] cols = columns[state];
+         if (cols.length == 0) {
+            base[state] = 0;
+            continue;
+         }
+         int position = occupied.nextClearBit(0);
+         while (true) {
+            final int candidate = position - cols[0];
+            if (fits(occupied, candidate, cols)) {
+               base[state] = candidate;
+               for (int col : cols) {
+                  occupied.set(candidate + col);
+               }
+               size = Math.max(size, candidate + cols[cols.length - 1] + 1);
+               break;
+            }
+            position = occupied.nextClearBit(position + 1);
+         }
+      }
+
+      final int[] check = new int[size];
+      Arrays.fill(check, -1);
+      final int[] next = new int[size];
+      for (int state = 0; state < rows.length; state++) {
+         for (int col : columns[state]) {
+            check[base[state] + col] = state;
+            next[base[state] + col] = rows[state][col];
+         }
+      }
+      return new int[][] { check, next };
+   }
+
+   private static int[] getColumns(int[] row, int empty) {
+      int count = 0;
+      for (int value : row) {
+         if (value != empty) {
+            count++;
+         }
+      }
+      final int[] columns = new int[count];
+      int i = 0;
+      for (int col = 0; col < row.length; col++) {
+         if (row[col] != empty) {
+            columns[i++] = col;
+         }
+      }
+      return columns;
+   }
+
+   private static boolean fits(BitSet occupied, int base, int[] columns) {
+      for (int col : columns) {
+         if (occupied.get(base + col)) {
+            return false;
+         }
+      }
+      return true;
+   }
+}
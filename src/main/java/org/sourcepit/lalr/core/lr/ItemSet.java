@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+import static java.util.Collections.unmodifiableSet;
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * An immutable set of LR items that computes its hash code only once. Two item sets with different hash codes are
+ * unequal without comparing their items, which makes item sets cheap keys for state lookup.
+ */
+public abstract class ItemSet<I> extends AbstractSet<I> {
+
+   // 0 until computed, like String.hashCode(), so the cache is safe to publish without synchronization
+   private int hashCode;
+
+   /**
+    * @return the given items if they are already an {@link ItemSet}, otherwise an immutable copy that preserves their
+    *         iteration order
+    */
+   @SuppressWarnings("unchecked")
+   public static <I> ItemSet<I> of(Collection<? extends I> items) {
+      notNull(items);
+      if (items instanceof ItemSet) {
+         return (ItemSet<I>) items;
+      }
+      return new LinkedItemSet<>(new LinkedHashSet<>(items));
+   }
+
+   @Override
+   public final int hashCode() {
+      int h = hashCode;
+      if (h == 0) {
+         h = computeHashCode();
+         hashCode = h;
+      }
+      return h;
+   }
+
+   /**
+    * @return the hash code as specified by {@link Set#hashCode()}
+    */
+   protected int computeHashCode() {
+      return super.hashCode();
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (o == this) {
+         return true;
+      }
+      if (o instanceof ItemSet && ((ItemSet<?>) o).hashCode() != hashCode()) {
+         return false;
+      }
+      return super.equals(o);
+   }
+
+   private static final class LinkedItemSet<I> extends ItemSet<I> {
+      private final Set<I> items;
+
+      LinkedItemSet(Set<I> items) {
+         this.items = unmodifiableSet(items);
+      }
+
+      @Override
+      public boolean contains(Object o) {
+         return items.contains(o);
+      }
+
+      @Override
+      public Iterator<I> iterator() {
+         return items.iterator();
+      }
+
+      @Override
+      public int size() {
+         return items.size();
+      }
+   }
+}
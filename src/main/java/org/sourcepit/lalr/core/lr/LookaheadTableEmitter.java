@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.sourcepit.lalr.core.grammar.AbstractSymbol;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Terminal;
+import org.sourcepit.lalr.core.grammar.TerminalSet;
+import org.sourcepit.lalr.core.grammar.Variable;
+
+/**
+ * Drives a {@link ParsingTableBuilder} from state transitions and reductions with lookahead sets. Reductions on the
+ * end-of-input terminal are emitted for the end of input column (<code>null</code> terminal).
+ */
+public final class LookaheadTableEmitter {
+
+   /**
+    * Returned by {@link #getDefaultReduction(Map, Collection)} for states without a default reduction.
+    */
+   public static final int NO_DEFAULT_REDUCTION = -1;
+
+   private LookaheadTableEmitter() {
+      super();
+   }
+
+   public static void emit(Grammar grammar, List<Map<AbstractSymbol, Integer>> transitions,
+      List<Map<Integer, TerminalSet>> reductions, ParsingTableBuilder tblb) {
+      emit(grammar, transitions, reductions, false, tblb);
+   }
+
+   /**
+    * @param reductions for every state the lookahead sets of its reductions, keyed by production index (
+    *           <code>-1</code> for the derived start production)
+    * @param defaultReductions whether consistent states are emitted with a
+    *           {@link ParsingTableBuilder#defaultReduce(int) default reduction}
+    */
+   public static void emit(Grammar grammar, List<Map<AbstractSymbol, Integer>> transitions,
+      List<Map<Integer, TerminalSet>> reductions, boolean defaultReductions, ParsingTableBuilder tblb) {
+      final Terminal eof = grammar.getSyntax().getEofTerminal();
+      final int states = transitions.size();
+
+      tblb.startTable(grammar, states);
+
+      for (int i = 0; i < states; i++) {
+         tblb.startState(i);
+
+         final Map<AbstractSymbol, Integer> currentTransitions = transitions.get(i);
+         final Map<Integer, TerminalSet> currentReductions = reductions.get(i);
+
+         final int defaultReduction = defaultReductions
+            ? getDefaultReduction(currentTransitions, currentReductions.keySet())
+            : NO_DEFAULT_REDUCTION;
+         if (defaultReduction != NO_DEFAULT_REDUCTION) {
+            tblb.defaultReduce(defaultReduction);
+            emitJumps(grammar, currentTransitions, tblb);
+            tblb.endState(i);
+            continue;
+         }
+
+         for (Terminal terminal : grammar.getTerminals()) {
+            if (terminal.equals(eof)) {
+               continue;
+            }
+            Integer target = currentTransitions.get(terminal);
+            if (target != null) {
+               tblb.shift(terminal, target);
+            }
+            for (Entry<Integer, TerminalSet> entry : currentReductions.entrySet()) {
+               if (entry.getValue().contains(terminal)) {
+                  tblb.reduce(terminal, entry.getKey().intValue());
+               }
+            }
+         }
+         for (Entry<Integer, TerminalSet> entry : currentReductions.entrySet()) {
+            if (entry.getValue().contains(eof)) {
+               tblb.reduce(null, entry.getKey().intValue());
+            }
+         }
+         emitJumps(grammar, currentTransitions, tblb);
+
+         tblb.endState(i);
+      }
+      tblb.endTable(grammar, states);
+   }
+
+   private static void emitJumps(Grammar grammar, Map<AbstractSymbol, Integer> transitions,
+      ParsingTableBuilder tblb) {
+      for (Variable variable : grammar.getVariables()) {
+         Integer target = transitions.get(variable);
+         if (target != null) {
+            tblb.jump(variable, target);
+         }
+      }
+   }
+
+   /**
+    * @param productions the productions reduced in the state (<code>-1</code> for the derived start production)
+    * @return the production of the only reduction of a state without shifts or {@link #NO_DEFAULT_REDUCTION}. The
+    *         start production is never a default reduction because it is accepted only on end of input.
+    */
+   public static int getDefaultReduction(Map<AbstractSymbol, Integer> transitions,
+      Collection<Integer> productions) {
+      if (productions.size() != 1) {
+         return NO_DEFAULT_REDUCTION;
+      }
+      final int production = productions.iterator().next().intValue();
+      if (production == -1) {
+         return NO_DEFAULT_REDUCTION;
+      }
+      for (AbstractSymbol symbol : transitions.keySet()) {
+         if (symbol instanceof Terminal) {
+            return NO_DEFAULT_REDUCTION;
+         }
+      }
+      return production;
+   }
+}
@@ -16,18 +16,32 @@
 
 package org.sourcepit.lalr.core.lr;
 
+import java.lang.ref.SoftReference;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import org.sourcepit.lalr.core.grammar.AbstractSymbol;
 import org.sourcepit.lalr.core.grammar.Variable;
 
+/**
+ * The states and transitions of an LR automaton. A state graph either stores the closed item set of every state or,
+ * if a closure function is set, only the kernel items of every state. In the latter case {@link #getStates()} closes
+ * the kernels on demand and keeps the closures softly reachable.
+ */
 public class LrStateGraph<LrItem> {
    private Variable derivedStartSymbol;
    private final List<Set<LrItem>> states = new ArrayList<>();
+   private final List<Set<LrItem>> kernels = new ArrayList<>();
    private final List<Map<AbstractSymbol, Integer>> transitions = new ArrayList<>();
+   private Function<Set<LrItem>, Set<LrItem>> closureFunction;
+   private SoftReference<?>[] closures = new SoftReference<?>[0];
+   private int mergeCount;
+   private int refusedMergeCount;
 
    public void setDerivedStartSymbol(Variable derivedStartSymbol) {
       this.derivedStartSymbol = derivedStartSymbol;
@@ -37,11 +51,87 @@ public class LrStateGraph<LrItem> {
       return derivedStartSymbol;
    }
 
+   /**
+    * Switches this graph to kernel only storage. States must then be added to {@link #getKernels()}.
+    */
+   public void setClosureFunction(Function<Set<LrItem>, Set<LrItem>> closureFunction) {
+      this.closureFunction = closureFunction;
+   }
+
+   public boolean isKernelOnly() {
+      return closureFunction != null;
+   }
+
+   /**
+    * @return the closed item sets of all states
+    */
    public List<Set<LrItem>> getStates() {
-      return states;
+      if (closureFunction == null) {
+         return states;
+      }
+      return new AbstractList<Set<LrItem>>() {
+         @Override
+         public Set<LrItem> get(int index) {
+            return getClosure(index);
+         }
+
+         @Override
+         public int size() {
+            return kernels.size();
+         }
+      };
+   }
+
+   /**
+    * @return the kernel items of all states if this graph stores kernels only, otherwise an empty list
+    */
+   public List<Set<LrItem>> getKernels() {
+      return kernels;
    }
 
    public List<Map<AbstractSymbol, Integer>> getTransitions() {
       return transitions;
    }
+
+   /**
+    * @return the number of discovered states that were merged into a registered state with the same core
+    */
+   public int getMergeCount() {
+      return mergeCount;
+   }
+
+   void incrementMergeCount() {
+      mergeCount++;
+   }
+
+   /**
+    * @return the number of times a discovered state was not merged into a registered state with the same core
+    */
+   public int getRefusedMergeCount() {
+      return refusedMergeCount;
+   }
+
+   void incrementRefusedMergeCount() {
+      refusedMergeCount++;
+   }
+
+   @SuppressWarnings("unchecked")
+   private Set<LrItem> getClosure(int state) {
+      final Set<LrItem> kernel = kernels.get(state);
+      synchronized (this) {
+         if (closures.length <= state) {
+            closures = Arrays.copyOf(closures, kernels.size());
+         }
+         final SoftReference<?> ref = closures[state];
+         final Set<LrItem> closure = ref == null ? null : (Set<LrItem>) ref.get();
+         if (closure != null) {
+            return closure;
+         }
+      }
+      final Set<LrItem> closure = closureFunction.apply(kernel);
+      synchronized (this) {
+         closures[state] = new SoftReference<>(closure);
+      }
+      return closure;
+   }
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+/**
+ * Receives progress of a state graph construction and allows to cancel it. The construction checks
+ * {@link #isCanceled()} before processing each state and throws a {@link java.util.concurrent.CancellationException}
+ * if it returns <code>true</code>.
+ */
+public interface LrStateGraphMonitor {
+
+   LrStateGraphMonitor NULL = new LrStateGraphMonitor() {
+      @Override
+      public void progress(int statesDiscovered, int statesProcessed, long itemsProcessed) {
+      }
+
+      @Override
+      public boolean isCanceled() {
+         return false;
+      }
+   };
+
+   /**
+    * Called after a state was processed.
+    *
+    * @param statesDiscovered the number of states found so far
+    * @param statesProcessed the number of states whose transitions were computed so far
+    * @param itemsProcessed the total number of items of the processed states
+    */
+   void progress(int statesDiscovered, int statesProcessed, long itemsProcessed);
+
+   boolean isCanceled();
+}
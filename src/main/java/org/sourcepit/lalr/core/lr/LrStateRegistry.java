@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+import static org.apache.commons.lang.Validate.isTrue;
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Assigns state numbers to item sets in constant time. If a core function is given, the registry also indexes the
+ * states by their core (for LR(1) the set of LR(0) items), which allows to find merge candidates without scanning all
+ * states.
+ */
+public final class LrStateRegistry<I> {
+
+   private final Function<Set<I>, ?> coreFunction;
+
+   private final Map<Set<I>, Integer> stateToIndex = new HashMap<>();
+
+   private final Map<Object, List<Integer>> coreToStates;
+
+   private final List<Set<I>> states = new ArrayList<>();
+
+   public LrStateRegistry() {
+      this(null);
+   }
+
+   public LrStateRegistry(Function<Set<I>, ?> coreFunction) {
+      this.coreFunction = coreFunction;
+      this.coreToStates = coreFunction == null ? null : new HashMap<>();
+   }
+
+   public int size() {
+      return states.size();
+   }
+
+   public Set<I> getState(int index) {
+      return states.get(index);
+   }
+
+   /**
+    * @return the number of the given state or <code>-1</code> if the state is not registered
+    */
+   public int indexOf(Set<I> state) {
+      final Integer index = stateToIndex.get(state);
+      return index == null ? -1 : index.intValue();
+   }
+
+   /**
+    * Registers a new state.
+    *
+    * @return the number of the new state
+    */
+   public int register(Set<I> state) {
+      notNull(state);
+      final int index = states.size();
+      isTrue(stateToIndex.putIfAbsent(state, index) == null, "State already registered");
+      states.add(state);
+      if (coreToStates != null) {
+         coreToStates.computeIfAbsent(coreFunction.apply(state), k -> new ArrayList<>(1)).add(index);
+      }
+      return index;
+   }
+
+   /**
+    * Replaces the item set of a registered state, e.g. after merging another state into it. The new item set must
+    * have the same core as the replaced one.
+    */
+   public void replace(int index, Set<I> state) {
+      notNull(state);
+      isTrue(stateToIndex.putIfAbsent(state, index) == null, "State already registered");
+      stateToIndex.remove(states.get(index));
+      states.set(index, state);
+   }
+
+   /**
+    * @return the numbers of all registered states with the given core or an empty list if no core function is set
+    */
+   public List<Integer> getStatesWithCore(Object core) {
+      if (coreToStates == null) {
+         return emptyList();
+      }
+      final List<Integer> result = coreToStates.get(core);
+      return result == null ? emptyList() : unmodifiableList(result);
+   }
+
+   public Function<Set<I>, ?> getCoreFunction() {
+      return coreFunction;
+   }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+/**
+ * A syntax error that was reported by a {@link Parser}, together with the repair that was applied to continue parsing.
+ */
+public class ParseError {
+
+   /**
+    * The repair of a syntax error.
+    */
+   public enum Repair {
+      /**
+       * The error was not repaired.
+       */
+      NONE,
+      /**
+       * A terminal was inserted before the token.
+       */
+      INSERT,
+      /**
+       * The token was deleted.
+       */
+      DELETE
+   }
+
+   private final int position;
+
+   private final int state;
+
+   private final int terminal;
+
+   private final Object token;
+
+   private final Repair repair;
+
+   private final int insertedTerminal;
+
+   public ParseError(int position, int state, int terminal, Object token, Repair repair, int insertedTerminal) {
+      this.position = position;
+      this.state = state;
+      this.terminal = terminal;
+      this.token = token;
+      this.repair = repair;
+      this.insertedTerminal = insertedTerminal;
+   }
+
+   /**
+    * @return the index of the token in the input
+    */
+   public int getPosition() {
+      return position;
+   }
+
+   public int getState() {
+      return state;
+   }
+
+   /**
+    * @return the index of the terminal of the token, the number of terminals for the end of input
+    */
+   public int getTerminal() {
+      return terminal;
+   }
+
+   /**
+    * @return the token or <code>null</code> for the end of input or if the token is unknown
+    */
+   public Object getToken() {
+      return token;
+   }
+
+   public Repair getRepair() {
+      return repair;
+   }
+
+   /**
+    * @return the index of the inserted terminal if the repair is {@link Repair#INSERT}, otherwise <code>-1</code>
+    */
+   public int getInsertedTerminal() {
+      return insertedTerminal;
+   }
+
+   @Override
+   public String toString() {
+      final StringBuilder sb = new StringBuilder();
+      sb.append("Syntax error at ").append(position).append(" in state ").append(state).append(" on ");
+      sb.append(token == null ? "terminal " + terminal : token);
+      switch (repair) {
+         case INSERT :
+            sb.append(", inserted terminal ").append(insertedTerminal);
+            break;
+         case DELETE :
+            sb.append(", deleted");
+            break;
+         default :
+            break;
+      }
+      return sb.toString();
+   }
+}
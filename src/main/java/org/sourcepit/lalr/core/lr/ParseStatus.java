@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+/**
+ * The state of a {@link Parser} after a token was {@link Parser#offer(Object) offered}.
+ */
+public enum ParseStatus {
+   /**
+    * The token was consumed and the parser waits for the next one.
+    */
+   NEED_MORE,
+   /**
+    * The input was accepted.
+    */
+   ACCEPTED,
+   /**
+    * The input has a syntax error.
+    */
+   ERROR;
+}
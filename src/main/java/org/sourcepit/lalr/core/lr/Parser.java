@@ -16,66 +16,564 @@
 
 package org.sourcepit.lalr.core.lr;
 
+import static org.apache.commons.lang.Validate.isTrue;
+import static org.apache.commons.lang.Validate.notNull;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.ACCEPT;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.ERROR;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.MASK_ACTION;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.MASK_DATA;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.REDUCE;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.SHIFT;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Stack;
+import java.util.List;
+import java.util.Map;
 
 import org.sourcepit.lalr.core.grammar.Production;
-import org.sourcepit.lalr.core.lr.AbstractParserAction;
-import org.sourcepit.lalr.core.lr.ParsingTable;
-import org.sourcepit.lalr.core.lr.Reduce;
-import org.sourcepit.lalr.core.lr.Shift;
 
+/**
+ * A table driven LR parser. States and values are kept in growable arrays and actions are processed as the
+ * <code>int</code> codes of {@link PrimitiveParsingTable}, so shifts, reductions and gotos on a primitive table do
+ * not allocate.
+ * <p>
+ * Tokens are either pulled from an iterator by {@link #parse(Iterator)} or pushed one at a time by
+ * {@link #offer(Object)}, which keeps the parser state between calls. A parser is not thread safe, but may be reused
+ * for consecutive inputs.
+ */
 public class Parser<T> {
 
-   private final ParsingTable<T, Production> parsingTable;
+   /**
+    * Action codes of a parsing table for the tokens of a parser.
+    */
+   private interface ActionTable<T> {
+      int getAction(int state, T token);
+
+      /**
+       * @return the action of a consistent state or {@link PrimitiveParsingTable#ERROR}
+       */
+      int getConsistentAction(int state);
+
+      int getGoto(int state, int production);
+
+      int getLength(int production);
+
+      /**
+       * @return the value that represents a reduction of the production on the value stack
+       */
+      Object getValue(int production);
+   }
+
+   /**
+    * The maximum number of parse steps to validate a repair.
+    */
+   private static final int REPAIR_STEPS = 64;
+
+   private final ActionTable<T> actionTable;
+
+   private final PrimitiveParsingTable primitiveTable;
+
+   private final TerminalClassifier<? super T> classifier;
+
+   private int[] stateStack = new int[64];
+
+   private Object[] valueStack = new Object[64];
+
+   private int top = -1;
+
+   private int maxTop = -1;
+
+   private ReduceHandler reduceHandler;
+
+   private ParseStatus status;
+
+   private Object result;
+
+   private String errorMessage;
+
+   private int errorState;
+
+   private int position;
+
+   private int maxErrors;
+
+   private final List<ParseError> errors = new ArrayList<>();
+
+   private final int[] simulation = new int[REPAIR_STEPS + 1];
 
    public Parser(ParsingTable<T, Production> parsingTable) {
-      this.parsingTable = parsingTable;
+      notNull(parsingTable);
+      this.actionTable = new ObjectActionTable<>(parsingTable);
+      this.primitiveTable = null;
+      this.classifier = null;
+      reset();
    }
 
-   private Stack<Integer> stateStack = new Stack<Integer>();
+   /**
+    * @param classifier classifies all tokens except the end of input, which is <code>null</code>
+    */
+   public Parser(PrimitiveParsingTable parsingTable, TerminalClassifier<? super T> classifier) {
+      notNull(parsingTable);
+      notNull(classifier);
+      this.actionTable = new PrimitiveActionTable<>(parsingTable, classifier);
+      this.primitiveTable = parsingTable;
+      this.classifier = classifier;
+      reset();
+   }
 
-   private Stack<Object> tokenStack = new Stack<>();
+   public ReduceHandler getReduceHandler() {
+      return reduceHandler;
+   }
 
-   public void parse(Iterator<T> tokens) {
+   /**
+    * Sets the handler that computes the value of every reduction. Without a handler, reductions have the value
+    * <code>null</code> or, for parsers of a {@link ParsingTable}, the reduced production.
+    *
+    * @throws IllegalStateException if the parser does not use a {@link PrimitiveParsingTable}, which is required to
+    *            identify productions by index
+    */
+   public void setReduceHandler(ReduceHandler reduceHandler) {
+      if (reduceHandler != null && primitiveTable == null) {
+         throw new IllegalStateException("Reduce handlers require a " + PrimitiveParsingTable.class.getSimpleName());
+      }
+      this.reduceHandler = reduceHandler;
+   }
+
+   public int getMaxErrors() {
+      return maxErrors;
+   }
 
-      stateStack.push(Integer.valueOf(0));
+   /**
+    * Enables error recovery if set to a positive number. On a syntax error, the parser tries to insert a terminal
+    * before the erroneous token so that both can be parsed, otherwise it deletes the token. Every candidate repair is
+    * validated with at most a constant number of parse steps, so the cost per error is bounded by the number of
+    * terminals. The input is rejected when it has more errors than allowed or an error at its end cannot be repaired.
+    * Inserted terminals have the value <code>null</code>.
+    *
+    * @throws IllegalStateException if the parser does not use a {@link PrimitiveParsingTable}, which is required to
+    *            search repairs
+    */
+   public void setMaxErrors(int maxErrors) {
+      isTrue(maxErrors >= 0);
+      if (maxErrors > 0 && primitiveTable == null) {
+         throw new IllegalStateException("Error recovery requires a " + PrimitiveParsingTable.class.getSimpleName());
+      }
+      this.maxErrors = maxErrors;
+   }
 
-      T token = nextToken(tokens);
+   /**
+    * @return the syntax errors of the current or last input, including repaired ones
+    */
+   public List<ParseError> getErrors() {
+      return errors;
+   }
 
+   /**
+    * Parses all tokens, the end of input is implied.
+    *
+    * @return the value of the start symbol
+    * @throws IllegalStateException on a syntax error
+    */
+   public Object parse(Iterator<T> tokens) {
+      reset();
       while (true) {
+         // consistent states are reduced before the next token is read
+         switch (offer(nextToken(tokens))) {
+            case ACCEPTED :
+               return result;
+            case ERROR :
+               throw new IllegalStateException(errorMessage);
+            default :
+               break;
+         }
+      }
+   }
 
-         Integer state = stateStack.peek();
+   /**
+    * Parses the given terminal indexes, the end of input is implied.
+    *
+    * @return the value of the start symbol
+    * @throws IllegalStateException on a syntax error or if the parser does not use a {@link PrimitiveParsingTable}
+    */
+   public Object parse(int[] terminals, int offset, int length) {
+      return parse(terminals, null, offset, length);
+   }
 
-         final AbstractParserAction<Production> action = parsingTable.getAction(state, token);
-         switch (action.getType()) {
+   /**
+    * Parses the given terminal indexes, the end of input is implied.
+    *
+    * @param values the values of the tokens, at the same positions as their terminals, or <code>null</code>
+    * @return the value of the start symbol
+    * @throws IllegalStateException on a syntax error or if the parser does not use a {@link PrimitiveParsingTable}
+    */
+   public Object parse(int[] terminals, Object[] values, int offset, int length) {
+      if (primitiveTable == null) {
+         throw new IllegalStateException("Parsing terminal indexes requires a "
+            + PrimitiveParsingTable.class.getSimpleName());
+      }
+      isTrue(offset >= 0 && length >= 0 && offset + length <= terminals.length);
+      isTrue(values == null || offset + length <= values.length);
+
+      reset();
+
+      final int eof = primitiveTable.getTerminalCount();
+      final int end = offset + length;
+      for (int i = offset;; i++) {
+         final int terminal = i < end ? terminals[i] : eof;
+         consume(terminal < eof || i == end ? terminal : TerminalClassifier.NONE,
+            values == null || i == end ? null : values[i]);
+         switch (status) {
+            case ACCEPTED :
+               return result;
+            case ERROR :
+               errorMessage = "Syntax error in state " + errorState + " on "
+                  + (i < end ? "terminal " + terminal + " at " + i : "end of input");
+               throw new IllegalStateException(errorMessage);
+            default :
+               break;
+         }
+      }
+   }
+
+   /**
+    * Discards the input parsed so far and prepares the parser for a new input.
+    */
+   public void reset() {
+      clear();
+      push(0, null);
+      status = ParseStatus.NEED_MORE;
+      result = null;
+      errorMessage = null;
+      position = 0;
+      errors.clear();
+      reduceConsistentStates();
+   }
+
+   /**
+    * Consumes the next token of the input and performs all reductions that are possible without a further token.
+    * Offer <code>null</code> to signal the end of input.
+    *
+    * @return {@link ParseStatus#NEED_MORE} unless the input is accepted or has an error
+    * @throws IllegalStateException if the parser has already accepted or rejected its input and was not
+    *            {@link #reset()}
+    */
+   public ParseStatus offer(T token) {
+      if (status != ParseStatus.NEED_MORE) {
+         throw new IllegalStateException("The parser must be reset to parse a new input");
+      }
+      if (primitiveTable != null) {
+         consume(token == null ? primitiveTable.getTerminalCount() : classifier.getTerminal(token), token);
+         if (status == ParseStatus.ERROR) {
+            errorMessage = "Syntax error in state " + errorState + " on " + (token == null ? "end of input" : token);
+         }
+         return status;
+      }
+      while (true) {
+         final int state = stateStack[top];
+         final int action = actionTable.getAction(state, token);
+         switch (action & MASK_ACTION) {
             case SHIFT :
-               final Shift<Production> shift = action.asShift();
-               tokenStack.push(token);
-               token = nextToken(tokens);
-               stateStack.push(shift.getNextState());
+               push(action & MASK_DATA, token);
+               reduceConsistentStates();
+               return status;
+            case REDUCE :
+               reduce(action & MASK_DATA);
                break;
+            case ACCEPT :
+               result = valueStack[top];
+               status = ParseStatus.ACCEPTED;
+               clear();
+               return status;
+            default :
+               errorMessage = "Syntax error in state " + state + " on " + (token == null ? "end of input" : token);
+               status = ParseStatus.ERROR;
+               clear();
+               return status;
+         }
+      }
+   }
+
+   /**
+    * Consumes a terminal of a primitive table and repairs syntax errors if error recovery is enabled.
+    */
+   private void consume(int terminal, Object value) {
+      final PrimitiveParsingTable table = primitiveTable;
+      final int eof = table.getTerminalCount();
+      while (true) {
+         final int state = stateStack[top];
+         final int action = terminal < 0 ? ERROR : table.getAction(state, terminal);
+         switch (action & MASK_ACTION) {
+            case SHIFT :
+               push(action & MASK_DATA, value);
+               reduceConsistentStates();
+               position++;
+               return;
             case REDUCE :
-               final Reduce<Production> reduce = action.asReduce();
-               Production production = reduce.getProduction();
-               for (int i = 0; i < production.getRightSide().size(); i++) {
-                  stateStack.pop();
-                  tokenStack.pop();
-               }
-               state = stateStack.peek();
-               tokenStack.push(production);
-               state = parsingTable.getGoto(state.intValue(), production);
-               stateStack.push(state);
+               reduce(action & MASK_DATA);
                break;
             case ACCEPT :
+               result = valueStack[top];
+               status = ParseStatus.ACCEPTED;
+               clear();
+               return;
+            default :
+               if (errors.size() < maxErrors) {
+                  final int inserted = findInsertion(terminal, eof);
+                  if (inserted > -1) {
+                     errors.add(new ParseError(position, state, terminal, value, ParseError.Repair.INSERT, inserted));
+                     shift(inserted);
+                     break;
+                  }
+                  if (terminal != eof) {
+                     errors.add(new ParseError(position, state, terminal, value, ParseError.Repair.DELETE, -1));
+                     position++;
+                     return;
+                  }
+               }
+               errors.add(new ParseError(position, state, terminal, value, ParseError.Repair.NONE, -1));
+               errorState = state;
+               status = ParseStatus.ERROR;
+               clear();
                return;
          }
       }
    }
 
+   /**
+    * @return a terminal that can be parsed before the given one or <code>-1</code>
+    */
+   private int findInsertion(int terminal, int eof) {
+      if (terminal < 0) {
+         return -1;
+      }
+      for (int candidate = 0; candidate < eof; candidate++) {
+         if (candidate != terminal && canParse(candidate, terminal)) {
+            return candidate;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * Simulates the parse of two terminals on the current stack without modifying it. Popped states are taken from
+    * the parser stack, pushed states are kept in the simulation stack.
+    */
+   private boolean canParse(int first, int second) {
+      final PrimitiveParsingTable table = primitiveTable;
+      int depth = top;
+      int simulationTop = -1;
+      int steps = 0;
+      for (int terminal = first, i = 0; i < 2; terminal = second, i++) {
+         boolean shifted = false;
+         while (!shifted) {
+            if (++steps > REPAIR_STEPS) {
+               return false;
+            }
+            final int state = simulationTop < 0 ? stateStack[depth] : simulation[simulationTop];
+            final int action = table.getAction(state, terminal);
+            switch (action & MASK_ACTION) {
+               case SHIFT :
+                  simulation[++simulationTop] = action & MASK_DATA;
+                  shifted = true;
+                  break;
+               case REDUCE :
+                  final int production = action & MASK_DATA;
+                  final int length = table.getProductionLength(production);
+                  final int popped = Math.min(length, simulationTop + 1);
+                  simulationTop -= popped;
+                  depth -= length - popped;
+                  final int exposed = simulationTop < 0 ? stateStack[depth] : simulation[simulationTop];
+                  simulation[++simulationTop] = table.getGoto(exposed, table.getProductionVariable(production));
+                  break;
+               case ACCEPT :
+                  return true;
+               default :
+                  return false;
+            }
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Shifts an inserted terminal, which is known to be parsable, with the value <code>null</code>.
+    */
+   private void shift(int terminal) {
+      while (true) {
+         final int action = primitiveTable.getAction(stateStack[top], terminal);
+         if ((action & MASK_ACTION) == SHIFT) {
+            push(action & MASK_DATA, null);
+            reduceConsistentStates();
+            return;
+         }
+         reduce(action & MASK_DATA);
+      }
+   }
+
+   public ParseStatus getStatus() {
+      return status;
+   }
+
+   /**
+    * @return the value of the start symbol if the input was accepted
+    */
+   public Object getResult() {
+      return result;
+   }
+
+   /**
+    * @return the description of the syntax error if the input was rejected
+    */
+   public String getErrorMessage() {
+      return errorMessage;
+   }
+
+   private void reduceConsistentStates() {
+      int action;
+      while ((action = actionTable.getConsistentAction(stateStack[top])) != ERROR) {
+         reduce(action & MASK_DATA);
+      }
+   }
+
+   private void reduce(int production) {
+      final int length = actionTable.getLength(production);
+      final Object value = reduceHandler == null
+         ? actionTable.getValue(production)
+         : reduceHandler.reduce(production, valueStack, top - length + 1, length);
+      top -= length;
+      push(actionTable.getGoto(stateStack[top], production), value);
+   }
+
+   private void clear() {
+      Arrays.fill(valueStack, 0, maxTop + 1, null);
+      maxTop = -1;
+      top = -1;
+   }
+
+   private void push(int state, Object value) {
+      if (++top == stateStack.length) {
+         stateStack = Arrays.copyOf(stateStack, top << 1);
+         valueStack = Arrays.copyOf(valueStack, top << 1);
+      }
+      stateStack[top] = state;
+      valueStack[top] = value;
+      if (top > maxTop) {
+         maxTop = top;
+      }
+   }
+
    private T nextToken(Iterator<T> tokens) {
       return tokens.hasNext() ? tokens.next() : null;
    }
 
+   private static final class PrimitiveActionTable<T> implements ActionTable<T> {
+      private final PrimitiveParsingTable parsingTable;
 
+      private final TerminalClassifier<? super T> classifier;
+
+      private final int eof;
+
+      PrimitiveActionTable(PrimitiveParsingTable parsingTable, TerminalClassifier<? super T> classifier) {
+         this.parsingTable = parsingTable;
+         this.classifier = classifier;
+         eof = parsingTable.getTerminalCount();
+      }
+
+      @Override
+      public int getAction(int state, T token) {
+         if (token == null) {
+            return parsingTable.getAction(state, eof);
+         }
+         final int terminal = classifier.getTerminal(token);
+         return terminal < 0 ? ERROR : parsingTable.getAction(state, terminal);
+      }
+
+      @Override
+      public int getConsistentAction(int state) {
+         return parsingTable.getConsistentAction(state);
+      }
+
+      @Override
+      public int getGoto(int state, int production) {
+         return parsingTable.getGoto(state, parsingTable.getProductionVariable(production));
+      }
+
+      @Override
+      public int getLength(int production) {
+         return parsingTable.getProductionLength(production);
+      }
+
+      @Override
+      public Object getValue(int production) {
+         return null;
+      }
+   }
+
+   /**
+    * Encodes the action objects of a {@link ParsingTable}. Productions are numbered in order of their first reduction.
+    */
+   private static final class ObjectActionTable<T> implements ActionTable<T> {
+      private final ParsingTable<T, Production> parsingTable;
+
+      private final Map<Production, Integer> productionToIndex = new HashMap<>();
+
+      private final List<Production> productions = new ArrayList<>();
+
+      ObjectActionTable(ParsingTable<T, Production> parsingTable) {
+         this.parsingTable = parsingTable;
+      }
+
+      @Override
+      public int getAction(int state, T token) {
+         return encode(parsingTable.getAction(state, token));
+      }
+
+      @Override
+      public int getConsistentAction(int state) {
+         return encode(parsingTable.getConsistentAction(state));
+      }
+
+      private int encode(AbstractParserAction<Production> action) {
+         if (action == null) {
+            return ERROR;
+         }
+         switch (action.getType()) {
+            case SHIFT :
+               return SHIFT | action.asShift().getNextState();
+            case REDUCE :
+               return REDUCE | indexOf(action.asReduce().getProduction());
+            case ACCEPT :
+               return ACCEPT;
+            default :
+               return ERROR;
+         }
+      }
+
+      private int indexOf(Production production) {
+         Integer index = productionToIndex.get(production);
+         if (index == null) {
+            index = Integer.valueOf(productions.size());
+            productions.add(production);
+            productionToIndex.put(production, index);
+         }
+         return index.intValue();
+      }
+
+      @Override
+      public int getGoto(int state, int production) {
+         return parsingTable.getGoto(state, productions.get(production));
+      }
+
+      @Override
+      public int getLength(int production) {
+         return productions.get(production).getRightSide().size();
+      }
+
+      @Override
+      public Object getValue(int production) {
+         return productions.get(production);
+      }
+   }
 }
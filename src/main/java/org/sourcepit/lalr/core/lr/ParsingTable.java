@@ -20,4 +20,11 @@ public interface ParsingTable<T, P> {
    AbstractParserAction<P> getAction(int state, T token);
 
    int getGoto(int state, P production);
+
+   /**
+    * @return the action of a state that does not need a lookahead to decide or <code>null</code>
+    */
+   default AbstractParserAction<P> getConsistentAction(int state) {
+      return null;
+   }
 }
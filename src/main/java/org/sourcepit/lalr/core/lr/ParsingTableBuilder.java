@@ -30,6 +30,13 @@ public interface ParsingTableBuilder {
 
    void reduce(Terminal terminal, int production);
 
+   /**
+    * Reduces by the production regardless of the lookahead. Generators call this instead of {@link #reduce} for
+    * consistent states, which have a single reduction and no shifts, if they are configured to emit default
+    * reductions.
+    */
+   void defaultReduce(int production);
+
    void jump(Variable variable, int targetState);
 
    void endState(int state);
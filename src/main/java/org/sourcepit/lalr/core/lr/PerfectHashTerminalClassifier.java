@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Terminal;
+
+/**
+ * Classifies tokens by the names of the terminals of a grammar with a perfect hash function that is generated by hash
+ * and displace: the names are distributed over buckets and for every bucket a displacement is searched that moves
+ * all of its names into free slots of the table. A token is classified with one hash computation and one comparison.
+ */
+public final class PerfectHashTerminalClassifier implements TerminalClassifier<CharSequence> {
+
+   private static final int BUCKET_SIZE = 4;
+
+   private static final int MAX_DISPLACEMENT = 1 << 16;
+
+   private static final int FNV_OFFSET_BASIS = 0x811C9DC5;
+
+   private static final int MAX_SEEDS = 64;
+
+   private final int seed;
+
+   private final int[] displacements;
+
+   private final int mask;
+
+   private final String[] slotToName;
+
+   private final int[] slotToTerminal;
+
+   public PerfectHashTerminalClassifier(Grammar grammar) {
+      notNull(grammar);
+      final List<Terminal> terminals = grammar.getTerminals();
+      final String[] names = new String[terminals.size()];
+      for (int i = 0; i < names.length; i++) {
+         names[i] = terminals.get(i).toString();
+      }
+
+      // names with equal hashes cannot be separated by any table size, so vary the offset basis until all differ
+      int[] hashes = null;
+      int seed = FNV_OFFSET_BASIS;
+      for (int i = 0; hashes == null; i++) {
+         if (i == MAX_SEEDS) {
+            throw new IllegalStateException("No distinct hashes found for " + names.length + " terminals");
+         }
+         seed = FNV_OFFSET_BASIS + i * 0x9E3779B9;
+         hashes = hashAll(names, seed);
+      }
+      this.seed = seed;
+
+      displacements = new int[Math.max(1, names.length / BUCKET_SIZE)];
+
+      // table size is the next power of two with at least 25% free slots
+      int size = Integer.highestOneBit(Math.max(1, names.length + names.length / 4 - 1)) << 1;
+      int[] slots;
+      while ((slots = place(hashes, displacements, size)) == null) {
+         if (size == 1 << 30) {
+            throw new IllegalStateException("No perfect hash function found for " + names.length + " terminals");
+         }
+         size <<= 1;
+      }
+
+      mask = size - 1;
+      slotToName = new String[size];
+      slotToTerminal = new int[size];
+      Arrays.fill(slotToTerminal, NONE);
+      for (int i = 0; i < names.length; i++) {
+         slotToName[slots[i]] = names[i];
+         slotToTerminal[slots[i]] = i;
+      }
+   }
+
+   /**
+    * Searches the displacements of all buckets, largest buckets first.
+    *
+    * @return the slot of every name or <code>null</code> if no displacements were found
+    */
+   private static int[] place(int[] hashes, int[] displacements, int size) {
+      final List<List<Integer>> buckets = new ArrayList<>(displacements.length);
+      for (int i = 0; i < displacements.length; i++) {
+         buckets.add(new ArrayList<>());
+      }
+      for (int i = 0; i < hashes.length; i++) {
+         buckets.get(bucketOf(hashes[i], displacements.length)).add(Integer.valueOf(i));
+      }
+      final Integer[] order = new Integer[displacements.length];
+      for (int i = 0; i < order.length; i++) {
+         order[i] = Integer.valueOf(i);
+      }
+      Arrays.sort(order, (b1, b2) -> buckets.get(b2.intValue()).size() - buckets.get(b1.intValue()).size());
+
+      final int mask = size - 1;
+      final boolean[] used = new boolean[size];
+      final int[] slots = new int[hashes.length];
+      for (Integer b : order) {
+         final List<Integer> bucket = buckets.get(b.intValue());
+         if (bucket.isEmpty()) {
+            break;
+         }
+         int d = 0;
+         while (!tryDisplace(hashes, bucket, d, mask, used, slots)) {
+            if (++d == MAX_DISPLACEMENT) {
+               return null;
+            }
+         }
+         displacements[b.intValue()] = d;
+      }
+      return slots;
+   }
+
+   private static boolean tryDisplace(int[] hashes, List<Integer> bucket, int d, int mask, boolean[] used,
+      int[] slots) {
+      for (int i = 0; i < bucket.size(); i++) {
+         final int name = bucket.get(i).intValue();
+         final int slot = slotOf(hashes[name], d, mask);
+         if (used[slot]) {
+            for (int j = 0; j < i; j++) {
+               used[slots[bucket.get(j).intValue()]] = false;
+            }
+            return false;
+         }
+         used[slot] = true;
+         slots[name] = slot;
+      }
+      return true;
+   }
+
+   /**
+    * @return the hashes of all names or <code>null</code> if two names have the same hash
+    */
+   private static int[] hashAll(String[] names, int seed) {
+      final int[] hashes = new int[names.length];
+      for (int i = 0; i < names.length; i++) {
+         hashes[i] = hash(names[i], seed);
+      }
+      final int[] sorted = hashes.clone();
+      Arrays.sort(sorted);
+      for (int i = 1; i < sorted.length; i++) {
+         if (sorted[i] == sorted[i - 1]) {
+            return null;
+         }
+      }
+      return hashes;
+   }
+
+   private static int hash(CharSequence chars, int seed) {
+      int h = seed;
+      for (int i = 0; i < chars.length(); i++) {
+         h = (h ^ chars.charAt(i)) * 0x01000193;
+      }
+      return h;
+   }
+
+   private static int bucketOf(int hash, int buckets) {
+      return (hash & 0x7FFFFFFF) % buckets;
+   }
+
+   private static int slotOf(int hash, int displacement, int mask) {
+      int h = hash ^ displacement * 0x9E3779B9;
+      h *= 0x85EBCA6B;
+      h ^= h >>> 13;
+      h *= 0xC2B2AE35;
+      h ^= h >>> 16;
+      return h & mask;
+   }
+
+   /**
+    * @return the number of slots of the hash table
+    */
+   public int getTableSize() {
+      return slotToName.length;
+   }
+
+   @Override
+   public int getTerminal(CharSequence token) {
+      final int h = hash(token, seed);
+      final int slot = slotOf(h, displacements[bucketOf(h, displacements.length)], mask);
+      final String name = slotToName[slot];
+      return name != null && contentEquals(name, token) ? slotToTerminal[slot] : NONE;
+   }
+
+   private static boolean contentEquals(String name, CharSequence token) {
+      final int length = name.length();
+      if (length != token.length()) {
+         return false;
+      }
+      for (int i = 0; i < length; i++) {
+         if (name.charAt(i) != token.charAt(i)) {
+            return false;
+         }
+      }
+      return true;
+   }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+/**
+ * A parsing table that is addressed by the indexes of terminals, variables and productions of its grammar. The index
+ * of the end of input is the number of terminals.
+ * <p>
+ * Actions are encoded as <code>int</code>: the two high bits hold the action type, the remaining bits the target
+ * state of a shift or the production index of a reduction. {@link #ERROR} is <code>0</code>.
+ */
+public interface PrimitiveParsingTable {
+
+   int ERROR = 0;
+
+   int SHIFT = 1 << 30;
+
+   int REDUCE = 2 << 30;
+
+   int ACCEPT = 3 << 30;
+
+   int MASK_ACTION = 3 << 30;
+
+   int MASK_DATA = ~MASK_ACTION;
+
+   static int getActionType(int action) {
+      return action & MASK_ACTION;
+   }
+
+   static int getData(int action) {
+      return action & MASK_DATA;
+   }
+
+   int getStateCount();
+
+   /**
+    * @return the number of terminals, which is also the index of the end of input
+    */
+   int getTerminalCount();
+
+   /**
+    * @return the encoded action
+    */
+   int getAction(int state, int terminal);
+
+   /**
+    * @return the action of a state that does not need a lookahead to decide or {@link #ERROR}
+    */
+   int getConsistentAction(int state);
+
+   /**
+    * @return the target state or <code>-1</code> if there is no transition
+    */
+   int getGoto(int state, int variable);
+
+   /**
+    * @return the number of symbols on the right side of the production
+    */
+   int getProductionLength(int production);
+
+   /**
+    * @return the index of the left side of the production
+    */
+   int getProductionVariable(int production);
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+import static org.apache.commons.lang.Validate.isTrue;
+import static org.apache.commons.lang.Validate.notNull;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.getActionType;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.getData;
+
+import java.util.List;
+
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.Terminal;
+
+/**
+ * Provides the object API of a {@link PrimitiveParsingTable} for the terminals and productions of its grammar. The
+ * end of input is <code>null</code>. Action objects are created once per target state and production.
+ */
+public class PrimitiveParsingTableAdapter implements ParsingTable<Terminal, Production> {
+
+   private final Grammar grammar;
+
+   private final PrimitiveParsingTable parsingTable;
+
+   private final Shift<Production>[] shifts;
+
+   private final Reduce<Production>[] reductions;
+
+   private final Accept<Production> accept = new Accept<>();
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public PrimitiveParsingTableAdapter(Grammar grammar, PrimitiveParsingTable parsingTable) {
+      notNull(grammar);
+      notNull(parsingTable);
+      isTrue(grammar.getTerminals().size() == parsingTable.getTerminalCount());
+      this.grammar = grammar;
+      this.parsingTable = parsingTable;
+
+      shifts = new Shift[parsingTable.getStateCount()];
+      for (int i = 0; i < shifts.length; i++) {
+         shifts[i] = new Shift<>(i);
+      }
+      final List<Production> productions = grammar.getProductions();
+      reductions = new Reduce[productions.size()];
+      for (int i = 0; i < reductions.length; i++) {
+         reductions[i] = new Reduce<>(productions.get(i));
+      }
+   }
+
+   public Grammar getGrammar() {
+      return grammar;
+   }
+
+   public PrimitiveParsingTable getParsingTable() {
+      return parsingTable;
+   }
+
+   @Override
+   public AbstractParserAction<Production> getAction(int state, Terminal token) {
+      final int terminal = token == null ? parsingTable.getTerminalCount() : grammar.indexOf(token);
+      return toAction(parsingTable.getAction(state, terminal));
+   }
+
+   @Override
+   public AbstractParserAction<Production> getConsistentAction(int state) {
+      return toAction(parsingTable.getConsistentAction(state));
+   }
+
+   private AbstractParserAction<Production> toAction(int action) {
+      switch (getActionType(action)) {
+         case PrimitiveParsingTable.SHIFT :
+            return shifts[getData(action)];
+         case PrimitiveParsingTable.REDUCE :
+            return reductions[getData(action)];
+         case PrimitiveParsingTable.ACCEPT :
+            return accept;
+         default :
+            return null;
+      }
+   }
+
+   @Override
+   public int getGoto(int state, Production production) {
+      return parsingTable.getGoto(state, grammar.indexOf(production.getLeftSide()));
+   }
+}
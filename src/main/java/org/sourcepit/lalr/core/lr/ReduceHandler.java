@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+/**
+ * Semantic action of a {@link Parser}, which is called for every reduction with the values of the right side of the
+ * production. The values of terminals are their tokens, the values of variables are the results of previous
+ * reductions.
+ */
+@FunctionalInterface
+public interface ReduceHandler {
+
+   /**
+    * @param production the index of the production in the grammar
+    * @param values the value stack of the parser, which must not be modified and must not be retained
+    * @param offset the index of the value of the first symbol of the right side
+    * @param length the number of symbols of the right side
+    * @return the value of the left side
+    */
+   Object reduce(int production, Object[] values, int offset, int length);
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Terminal;
+
+/**
+ * Maps the tokens of a lexer to the indexes of the terminals of a grammar.
+ */
+@FunctionalInterface
+public interface TerminalClassifier<T> {
+
+   /**
+    * Returned for tokens that do not belong to a terminal.
+    */
+   int NONE = -1;
+
+   /**
+    * @param token a token, never <code>null</code>
+    * @return the index of the terminal of the token or {@link #NONE}
+    */
+   int getTerminal(T token);
+
+   /**
+    * @return a classifier for tokens that are spelled like the terminals of the grammar, based on a perfect hash
+    *         function over the terminal names
+    */
+   static TerminalClassifier<CharSequence> forNames(Grammar grammar) {
+      return new PerfectHashTerminalClassifier(grammar);
+   }
+
+   /**
+    * @return a classifier for enum tokens whose constants are named like the terminals of the grammar
+    */
+   static <E extends Enum<E>> TerminalClassifier<E> forEnum(Class<E> enumType, Grammar grammar) {
+      notNull(enumType);
+      final List<Terminal> terminals = grammar.getTerminals();
+      final E[] constants = enumType.getEnumConstants();
+      final int[] ordinalToTerminal = new int[constants.length];
+      Arrays.fill(ordinalToTerminal, NONE);
+      for (int i = 0; i < terminals.size(); i++) {
+         final String name = terminals.get(i).toString();
+         for (E constant : constants) {
+            if (constant.name().equals(name)) {
+               ordinalToTerminal[constant.ordinal()] = i;
+            }
+         }
+      }
+      return token -> ordinalToTerminal[token.ordinal()];
+   }
+
+   /**
+    * @param kind returns the <code>int</code> kind of a token
+    * @param kindToTerminal the terminal index of every kind, kinds outside of the array belong to no terminal
+    * @return a classifier for tokens with an <code>int</code> kind
+    */
+   static <T> TerminalClassifier<T> forKinds(ToIntFunction<? super T> kind, int[] kindToTerminal) {
+      notNull(kind);
+      notNull(kindToTerminal);
+      final int[] table = kindToTerminal.clone();
+      return token -> {
+         final int k = kind.applyAsInt(token);
+         return k >= 0 && k < table.length ? table[k] : NONE;
+      };
+   }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr.lalr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sourcepit.lalr.core.grammar.AbstractSymbol;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.Terminal;
+import org.sourcepit.lalr.core.grammar.TerminalSet;
+import org.sourcepit.lalr.core.grammar.Variable;
+import org.sourcepit.lalr.core.grammar.graph.Digraph;
+import org.sourcepit.lalr.core.grammar.graph.FirstFollowSolver;
+import org.sourcepit.lalr.core.lr.LookaheadTableEmitter;
+import org.sourcepit.lalr.core.lr.LrStateGraph;
+import org.sourcepit.lalr.core.lr.ParsingTableBuilder;
+import org.sourcepit.lalr.core.lr.zero.LrZeroItem;
+import org.sourcepit.lalr.core.lr.zero.LrZeroStateGraphFactory;
+
+/**
+ * Builds LALR(1) parsing tables from the LR(0) automaton. The lookaheads are computed with the relations of DeRemer
+ * and Pennello: Read is the closure of DR under <em>reads</em>, Follow is the closure of Read under <em>includes</em>
+ * and the lookahead of a reduction is the union of the Follow sets of the nonterminal transitions it looks back to.
+ */
+public class LalrParsingTable {
+
+   private boolean defaultReductions;
+
+   public boolean isDefaultReductions() {
+      return defaultReductions;
+   }
+
+   /**
+    * If set to <code>true</code>, consistent states are emitted with a
+    * {@link ParsingTableBuilder#defaultReduce(int) default reduction} instead of a reduction per lookahead.
+    */
+   public void setDefaultReductions(boolean defaultReductions) {
+      this.defaultReductions = defaultReductions;
+   }
+
+   public void build(Grammar grammar, ParsingTableBuilder tblb) {
+      final LrStateGraph<LrZeroItem> stateGraph = new LrZeroStateGraphFactory().createStateGraph(grammar);
+      final List<Map<Integer, TerminalSet>> lookaheads = computeLookaheads(grammar, stateGraph);
+      LookaheadTableEmitter.emit(grammar, stateGraph.getTransitions(), lookaheads, defaultReductions, tblb);
+   }
+
+   /**
+    * @return for every state the lookahead sets of its reductions, keyed by production index (<code>-1</code> for
+    *         the derived start production)
+    */
+   public List<Map<Integer, TerminalSet>> computeLookaheads(Grammar grammar, LrStateGraph<LrZeroItem> stateGraph) {
+      final List<Set<LrZeroItem>> states = stateGraph.getStates();
+      final List<Map<AbstractSymbol, Integer>> transitions = stateGraph.getTransitions();
+      final int variableCount = grammar.getVariables().size();
+      final boolean[] nullable = FirstFollowSolver.determineNullable(grammar);
+
+      // number the nonterminal transitions
+      final int[][] stateToTransition = new int[states.size()][];
+      final List<Integer> transitionToState = new ArrayList<>();
+      final List<Variable> transitionToVariable = new ArrayList<>();
+      for (int state = 0; state < states.size(); state++) {
+         final int[] variableToTransition = new int[variableCount];
+         Arrays.fill(variableToTransition, -1);
+         for (AbstractSymbol symbol : transitions.get(state).keySet()) {
+            if (symbol instanceof Variable) {
+               variableToTransition[grammar.indexOf((Variable) symbol)] = transitionToState.size();
+               transitionToState.add(state);
+               transitionToVariable.add((Variable) symbol);
+            }
+         }
+         stateToTransition[state] = variableToTransition;
+      }
+      final int transitionCount = transitionToState.size();
+
+      // DR and reads
+      final TerminalSet[] sets = new TerminalSet[transitionCount];
+      final int[][] reads = new int[transitionCount][];
+      for (int x = 0; x < transitionCount; x++) {
+         final int target = goTo(transitions, transitionToState.get(x), transitionToVariable.get(x));
+         final TerminalSet directReads = new TerminalSet(grammar);
+         final List<Integer> readTransitions = new ArrayList<>();
+         for (AbstractSymbol symbol : transitions.get(target).keySet()) {
+            if (symbol instanceof Terminal) {
+               directReads.add((Terminal) symbol);
+            }
+            else if (nullable[grammar.indexOf((Variable) symbol)]) {
+               readTransitions.add(stateToTransition[target][grammar.indexOf((Variable) symbol)]);
+            }
+         }
+         sets[x] = directReads;
+         reads[x] = toArray(readTransitions);
+      }
+      final int startTransition = stateToTransition[0][grammar.indexOf(grammar.getStartSymbol())];
+      sets[startTransition].add(grammar.getSyntax().getEofTerminal());
+
+      Digraph.traverse(reads, sets);
+
+      // includes and lookback
+      final List<List<Integer>> includes = new ArrayList<>(transitionCount);
+      for (int x = 0; x < transitionCount; x++) {
+         includes.add(new ArrayList<>());
+      }
+      final List<Map<Integer, List<Integer>>> lookback = new ArrayList<>(states.size());
+      for (int state = 0; state < states.size(); state++) {
+         lookback.add(new LinkedHashMap<>());
+      }
+      for (int x = 0; x < transitionCount; x++) {
+         final int from = transitionToState.get(x);
+         for (Production production : grammar.getProductions(transitionToVariable.get(x))) {
+            final List<AbstractSymbol> rightSide = production.getRightSide();
+            final int[] path = new int[rightSide.size() + 1];
+            path[0] = from;
+            for (int i = 0; i < rightSide.size(); i++) {
+               path[i + 1] = goTo(transitions, path[i], rightSide.get(i));
+            }
+            // (path[i], A) includes (from, B) if B = b A c and c is nullable
+            for (int i = rightSide.size() - 1; i >= 0; i--) {
+               final AbstractSymbol symbol = rightSide.get(i);
+               if (symbol instanceof Variable) {
+                  includes.get(stateToTransition[path[i]][grammar.indexOf((Variable) symbol)]).add(x);
+               }
+               if (!(symbol instanceof Variable) || !nullable[grammar.indexOf((Variable) symbol)]) {
+                  break;
+               }
+            }
+            final Integer productionIndex = Integer.valueOf(grammar.indexOf(production));
+            List<Integer> lookbackTransitions = lookback.get(path[rightSide.size()]).get(productionIndex);
+            if (lookbackTransitions == null) {
+               lookbackTransitions = new ArrayList<>();
+               lookback.get(path[rightSide.size()]).put(productionIndex, lookbackTransitions);
+            }
+            lookbackTransitions.add(x);
+         }
+      }
+      final int[][] includesRelation = new int[transitionCount][];
+      for (int x = 0; x < transitionCount; x++) {
+         includesRelation[x] = toArray(includes.get(x));
+      }
+
+      Digraph.traverse(includesRelation, sets);
+
+      // lookaheads
+      final List<Map<Integer, TerminalSet>> result = new ArrayList<>(states.size());
+      for (int state = 0; state < states.size(); state++) {
+         final Map<Integer, TerminalSet> reductions = new LinkedHashMap<>();
+         for (LrZeroItem item : states.get(state)) {
+            if (item.isFinal()) {
+               final int production = grammar.indexOf(item.getProduction());
+               final TerminalSet lookahead = new TerminalSet(grammar);
+               if (production < 0) {
+                  lookahead.add(grammar.getSyntax().getEofTerminal());
+               }
+               else {
+                  for (Integer x : lookback.get(state).get(Integer.valueOf(production))) {
+                     lookahead.addAll(sets[x.intValue()]);
+                  }
+               }
+               reductions.put(Integer.valueOf(production), lookahead);
+            }
+         }
+         result.add(reductions);
+      }
+      return result;
+   }
+
+   private static int goTo(List<Map<AbstractSymbol, Integer>> transitions, int state, AbstractSymbol symbol) {
+      final Integer target = transitions.get(state).get(symbol);
+      if (target == null) {
+         throw new IllegalStateException("Missing transition on " + symbol + " in state " + state);
+      }
+      return target.intValue();
+   }
+
+   private static int[] toArray(List<Integer> list) {
+      final int[] array = new int[list.size()];
+      for (int i = 0; i < array.length; i++) {
+         array[i] = list.get(i).intValue();
+      }
+      return array;
+   }
+}
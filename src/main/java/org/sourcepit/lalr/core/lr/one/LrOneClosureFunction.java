@@ -16,8 +16,6 @@
 
 package org.sourcepit.lalr.core.lr.one;
 
-import static org.apache.commons.lang.Validate.notNull;
-
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -30,25 +28,26 @@ import java.util.Set;
 import java.util.function.BiFunction;
 
 import org.apache.commons.lang.Validate;
-import org.omg.CosNaming.IstringHelper;
 import org.sourcepit.lalr.core.grammar.AbstractSymbol;
 import org.sourcepit.lalr.core.grammar.Grammar;
 import org.sourcepit.lalr.core.grammar.Production;
 import org.sourcepit.lalr.core.grammar.Terminal;
+import org.sourcepit.lalr.core.grammar.TerminalSet;
 import org.sourcepit.lalr.core.grammar.Variable;
 import org.sourcepit.lalr.core.grammar.graph.GrammarGraph;
 import org.sourcepit.lalr.core.grammar.graph.VariableNode;
+import org.sourcepit.lalr.core.lr.ItemSet;
 import org.sourcepit.lalr.core.lr.zero.LrZeroItem;
 
 public class LrOneClosureFunction implements BiFunction<GrammarGraph, Set<LrOneItem>, Set<LrOneItem>> {
 
    @Override
    public Set<LrOneItem> apply(GrammarGraph graph, Set<LrOneItem> inputItems) {
-      final Map<LrZeroItem, Set<Terminal>> zeroItemToLookahead = new LinkedHashMap<>();
+      final Map<LrZeroItem, TerminalSet> zeroItemToLookahead = new LinkedHashMap<>();
       for (LrOneItem item : inputItems) {
-         Set<Terminal> lookahead = zeroItemToLookahead.get(item.getLrZeroItem());
+         TerminalSet lookahead = zeroItemToLookahead.get(item.getLrZeroItem());
          if (lookahead == null) {
-            zeroItemToLookahead.put(item.getLrZeroItem(), item.getLookahead());
+            zeroItemToLookahead.put(item.getLrZeroItem(), new TerminalSet(item.getLookahead()));
          }
          else {
             lookahead.addAll(item.getLookahead());
@@ -76,10 +75,10 @@ public class LrOneClosureFunction implements BiFunction<GrammarGraph, Set<LrOneI
 
       final Set<LrOneItem> closure = new LinkedHashSet<>();
       for (LrZeroItem zItem : allItems) {
-         final Set<Terminal> lookahead = getLookahead(graph, zeroItemToLookahead, zeroItemToOrigins, zItem);
+         final TerminalSet lookahead = getLookahead(graph, zeroItemToLookahead, zeroItemToOrigins, zItem);
          closure.add(new LrOneItem(zItem, lookahead));
       }
-      return closure;
+      return ItemSet.of(closure);
    }
 
    private static boolean isOriginOf(Map<LrZeroItem, Set<LrZeroItem>> zeroItemToOrigins, LrZeroItem o1, LrZeroItem o2) {
@@ -96,11 +95,11 @@ public class LrOneClosureFunction implements BiFunction<GrammarGraph, Set<LrOneI
 
    }
 
-   private Set<Terminal> getLookahead(GrammarGraph graph, Map<LrZeroItem, Set<Terminal>> zeroItemToLookahead,
+   private TerminalSet getLookahead(GrammarGraph graph, Map<LrZeroItem, TerminalSet> zeroItemToLookahead,
       Map<LrZeroItem, Set<LrZeroItem>> zeroItemToOrigins, LrZeroItem zItem) {
-      Set<Terminal> lookahead = zeroItemToLookahead.get(zItem);
+      TerminalSet lookahead = zeroItemToLookahead.get(zItem);
       if (lookahead == null) {
-         lookahead = new LinkedHashSet<>();
+         lookahead = new TerminalSet(graph.getGrammar());
          for (LrZeroItem origin : zeroItemToOrigins.get(zItem)) {
             Validate.notNull(origin);
             Validate.isTrue(zItem.getProduction().getLeftSide().equals(origin.getExpectedSymbol()));
@@ -118,12 +117,7 @@ public class LrOneClosureFunction implements BiFunction<GrammarGraph, Set<LrOneI
                }
                else {
                   final VariableNode node = graph.getVariableNode((Variable) symbol);
-                  final Set<Terminal> nodeFirst = node.getFirstSet();
-
-                  Set<Terminal> tmp = new LinkedHashSet<>(nodeFirst);
-                  tmp.remove(null);
-
-                  lookahead.addAll(tmp);
+                  lookahead.addAllTerminals(node.getFirstSet());
 
                   if (!node.isNullable()) {
                      nullable = false;
@@ -133,10 +127,7 @@ public class LrOneClosureFunction implements BiFunction<GrammarGraph, Set<LrOneI
             }
 
             if (nullable) {
-               final Set<Terminal> lookaheadOfOrigin = zeroItemToLookahead.get(origin);
-               Set<Terminal> tmp = new LinkedHashSet<>(lookaheadOfOrigin);
-               tmp.remove(null);
-               lookahead.addAll(tmp);
+               lookahead.addAllTerminals(zeroItemToLookahead.get(origin));
             }
          }
          zeroItemToLookahead.put(zItem, lookahead);
@@ -165,41 +156,4 @@ public class LrOneClosureFunction implements BiFunction<GrammarGraph, Set<LrOneI
       }
    }
 
-   private static Set<Terminal> first(GrammarGraph graph, AbstractSymbol firstOfFirst,
-      Map<LrZeroItem, Set<Terminal>> zeroItemToLookahead, LrZeroItem origin) {
-      if (firstOfFirst == null) {
-         final Set<Terminal> lookaheadOfOrigin = zeroItemToLookahead.get(origin);
-         notNull(lookaheadOfOrigin, "Unexpected recursive attempt");
-         return new LinkedHashSet<>(lookaheadOfOrigin);
-      }
-      else if (firstOfFirst instanceof Terminal) {
-         final Set<Terminal> first = new LinkedHashSet<>(1);
-         first.add((Terminal) firstOfFirst);
-         return first;
-      }
-      else {
-         final VariableNode node = graph.getVariableNode((Variable) firstOfFirst);
-         final Set<Terminal> nodeFirst = node.getFirstSet();
-         final boolean nullable = node.isNullable();
-         final Set<Terminal> first;
-         if (nullable) {
-            final Set<Terminal> lookaheadOfOrigin = zeroItemToLookahead.get(origin);
-            notNull(lookaheadOfOrigin, "Unexpected recursive attempt");
-            first = new LinkedHashSet<>(lookaheadOfOrigin.size() + nodeFirst.size());
-            first.addAll(nodeFirst);
-            first.addAll(lookaheadOfOrigin);
-         }
-         else {
-            first = new LinkedHashSet<>(nodeFirst);
-         }
-         return first;
-      }
-   }
-
-   private static AbstractSymbol getSymbolAfterExpectedSymbol(LrZeroItem zeroItem) {
-      final int idx = zeroItem.getDot() + 1;
-      final List<AbstractSymbol> rightSide = zeroItem.getProduction().getRightSide();
-      return idx < rightSide.size() ? rightSide.get(idx) : null;
-   }
-
 }
@@ -24,7 +24,8 @@ import java.util.Set;
 import java.util.function.BiFunction;
 
 import org.sourcepit.lalr.core.grammar.AbstractSymbol;
-import org.sourcepit.lalr.core.grammar.Terminal;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.TerminalSet;
 import org.sourcepit.lalr.core.grammar.graph.GrammarGraph;
 import org.sourcepit.lalr.core.lr.zero.LrZeroItem;
 
@@ -51,7 +52,7 @@ public class LrOneGotoFunction
 
    private void apply(GrammarGraph graph, Map<AbstractSymbol, Set<LrOneItem>> symbolGotoClosure,
       Set<LrOneItem> closure) {
-      final Set<LrOneItem> startItems = getGotoClosuresStartItems(closure);
+      final Set<LrOneItem> startItems = getGotoClosuresStartItems(graph.getGrammar(), closure);
 
       // final Set<AbstractSymbol> staleGotos = new LinkedHashSet<>();
       for (LrOneItem startItem : startItems) {
@@ -78,22 +79,22 @@ public class LrOneGotoFunction
       }
    }
 
-   private static Set<LrOneItem> getGotoClosuresStartItems(Set<LrOneItem> closure) {
-      final Map<LrZeroItem, Set<Terminal>> gotoItems = new LinkedHashMap<>();
+   private static Set<LrOneItem> getGotoClosuresStartItems(Grammar grammar, Set<LrOneItem> closure) {
+      final Map<LrZeroItem, TerminalSet> gotoItems = new LinkedHashMap<>();
       for (LrOneItem oItem : closure) {
          final LrZeroItem zeroItem = oItem.getLrZeroItem();
          if (!zeroItem.isFinal()) {
             final LrZeroItem nextZeroItem = new LrZeroItem(zeroItem.getProduction(), zeroItem.getDot() + 1);
-            Set<Terminal> lookahead = gotoItems.get(nextZeroItem);
+            TerminalSet lookahead = gotoItems.get(nextZeroItem);
             if (lookahead == null) {
-               lookahead = new LinkedHashSet<>();
+               lookahead = new TerminalSet(grammar);
                gotoItems.put(nextZeroItem, lookahead);
             }
             lookahead.addAll(oItem.getLookahead());
          }
       }
       final Set<LrOneItem> result = new LinkedHashSet<>(gotoItems.size());
-      for (Entry<LrZeroItem, Set<Terminal>> entry : gotoItems.entrySet()) {
+      for (Entry<LrZeroItem, TerminalSet> entry : gotoItems.entrySet()) {
          result.add(new LrOneItem(entry.getKey(), entry.getValue()));
       }
       return result;
@@ -16,48 +16,58 @@
 
 package org.sourcepit.lalr.core.lr.one;
 
-import java.util.LinkedHashSet;
-import java.util.Set;
-
 import org.apache.commons.lang.Validate;
+import org.sourcepit.lalr.core.grammar.Grammar;
 import org.sourcepit.lalr.core.grammar.Production;
 import org.sourcepit.lalr.core.grammar.Terminal;
+import org.sourcepit.lalr.core.grammar.TerminalSet;
 import org.sourcepit.lalr.core.lr.zero.LrZeroItem;
 
 public class LrOneItem {
    private final LrZeroItem lrZeroItem;
 
-   private final Set<Terminal> lookahead;
+   private final TerminalSet lookahead;
+
+   private final int hashCode;
 
-   public static LrOneItem create(Production production, int dot, Terminal... lookahead) {
-      return create(new LrZeroItem(production, dot), lookahead);
+   public static LrOneItem create(Grammar grammar, Production production, int dot, Terminal... lookahead) {
+      return create(grammar, new LrZeroItem(production, dot), lookahead);
    }
 
-   public static LrOneItem create(LrZeroItem zItem, Terminal... lookahead) {
-      final Set<Terminal> lookaheadSet = new LinkedHashSet<>();
+   public static LrOneItem create(Grammar grammar, LrZeroItem zItem, Terminal... lookahead) {
+      final TerminalSet lookaheadSet = new TerminalSet(grammar);
       for (Terminal terminal : lookahead) {
+         Validate.notNull(terminal);
          lookaheadSet.add(terminal);
       }
       return new LrOneItem(zItem, lookaheadSet);
    }
 
-   public LrOneItem(LrZeroItem lrZeroItem, Set<Terminal> lookahead) {
+   /**
+    * Creates a new item that takes ownership of the given lookahead set, which must not be modified afterwards.
+    */
+   public LrOneItem(LrZeroItem lrZeroItem, TerminalSet lookahead) {
       Validate.notNull(lrZeroItem);
-      Validate.noNullElements(lookahead);
+      Validate.isTrue(!lookahead.containsEmpty());
       this.lrZeroItem = lrZeroItem;
       this.lookahead = lookahead;
+      this.hashCode = computeHashCode();
    }
 
    public LrZeroItem getLrZeroItem() {
       return lrZeroItem;
    }
 
-   public Set<Terminal> getLookahead() {
+   public TerminalSet getLookahead() {
       return lookahead;
    }
 
    @Override
    public int hashCode() {
+      return hashCode;
+   }
+
+   private int computeHashCode() {
       final int prime = 31;
       int result = 1;
       result = prime * result + ((lookahead == null) ? 0 : lookahead.hashCode());
@@ -77,6 +87,9 @@ public class LrOneItem {
          return false;
       }
       LrOneItem other = (LrOneItem) obj;
+      if (hashCode != other.hashCode) {
+         return false;
+      }
       if (lookahead == null) {
          if (other.lookahead != null) {
             return false;
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr.one;
+
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.TerminalSet;
+import org.sourcepit.lalr.core.grammar.graph.GrammarGraph;
+import org.sourcepit.lalr.core.lr.LookaheadTableEmitter;
+import org.sourcepit.lalr.core.lr.LrStateGraph;
+import org.sourcepit.lalr.core.lr.ParsingTableBuilder;
+import org.sourcepit.lalr.core.lr.one.LrOneStateGraphFactory.MergeMode;
+
+/**
+ * Builds parsing tables from the LR(1) automaton, using the lookahead of each final item for its reductions. The
+ * first and nullable information of the grammar graph must be determined in advance.
+ */
+public class LrOneParsingTable {
+
+   private final MergeMode mergeMode;
+
+   private boolean defaultReductions;
+
+   public boolean isDefaultReductions() {
+      return defaultReductions;
+   }
+
+   /**
+    * If set to <code>true</code>, consistent states are emitted with a
+    * {@link ParsingTableBuilder#defaultReduce(int) default reduction} instead of a reduction per lookahead.
+    */
+   public void setDefaultReductions(boolean defaultReductions) {
+      this.defaultReductions = defaultReductions;
+   }
+
+   public LrOneParsingTable() {
+      this(MergeMode.CANONICAL);
+   }
+
+   public LrOneParsingTable(MergeMode mergeMode) {
+      notNull(mergeMode);
+      this.mergeMode = mergeMode;
+   }
+
+   public MergeMode getMergeMode() {
+      return mergeMode;
+   }
+
+   public void build(GrammarGraph graph, ParsingTableBuilder tblb) {
+      final LrStateGraph<LrOneItem> stateGraph = new LrOneStateGraphFactory(mergeMode).createStateGraph(graph);
+      build(graph.getGrammar(), stateGraph, tblb);
+   }
+
+   public void build(Grammar grammar, LrStateGraph<LrOneItem> stateGraph, ParsingTableBuilder tblb) {
+      final List<Map<Integer, TerminalSet>> reductions = new ArrayList<>(stateGraph.getTransitions().size());
+      for (Set<LrOneItem> state : stateGraph.getStates()) {
+         final Map<Integer, TerminalSet> currentReductions = new LinkedHashMap<>();
+         for (LrOneItem item : state) {
+            if (item.getLrZeroItem().isFinal()) {
+               final Integer production = Integer.valueOf(grammar.indexOf(item.getLrZeroItem().getProduction()));
+               final TerminalSet lookahead = currentReductions.get(production);
+               if (lookahead == null) {
+                  currentReductions.put(production, new TerminalSet(item.getLookahead()));
+               }
+               else {
+                  lookahead.addAll(item.getLookahead());
+               }
+            }
+         }
+         reductions.add(currentReductions);
+      }
+      LookaheadTableEmitter.emit(grammar, stateGraph.getTransitions(), reductions, defaultReductions, tblb);
+   }
+}
@@ -16,15 +16,79 @@
 
 package org.sourcepit.lalr.core.lr.one;
 
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.sourcepit.lalr.core.grammar.AbstractSymbol;
 import org.sourcepit.lalr.core.grammar.Grammar;
 import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.TerminalSet;
 import org.sourcepit.lalr.core.grammar.graph.GrammarGraph;
 import org.sourcepit.lalr.core.lr.AbstractLrStateGraphFactory;
+import org.sourcepit.lalr.core.lr.ItemSet;
+import org.sourcepit.lalr.core.lr.zero.LrZeroItem;
 
 public class LrOneStateGraphFactory extends AbstractLrStateGraphFactory<GrammarGraph, LrOneItem> {
 
+   /**
+    * Determines whether states with the same LR(0) core are merged while the state graph is constructed.
+    */
+   public enum MergeMode {
+      /**
+       * Never merge, which yields the canonical LR(1) automaton.
+       */
+      CANONICAL,
+      /**
+       * Always merge, which yields the LALR(1) automaton.
+       */
+      LALR,
+      /**
+       * IELR-style: merge unless the merged state or one of the states that are reached from it has a reduce/reduce
+       * conflict that none of the corresponding unmerged states has.
+       */
+      CONFLICT_AVOIDING,
+      /**
+       * Pager's minimal LR(1): merge if the kernels of both states are weakly compatible.
+       */
+      PAGER
+   }
+
+   private final LrOneGotoFunction gotoFunction;
+
+   private MergeMode mergeMode = MergeMode.CANONICAL;
+
    public LrOneStateGraphFactory() {
-      super(new LrOneClosureFunction(), new LrOneGotoFunction(new LrOneClosureFunction()));
+      this(new LrOneGotoFunction(new LrOneClosureFunction()));
+   }
+
+   private LrOneStateGraphFactory(LrOneGotoFunction gotoFunction) {
+      super(new LrOneClosureFunction(), gotoFunction);
+      this.gotoFunction = gotoFunction;
+   }
+
+   public LrOneStateGraphFactory(MergeMode mergeMode) {
+      this();
+      setMergeMode(mergeMode);
+   }
+
+   public MergeMode getMergeMode() {
+      return mergeMode;
+   }
+
+   public void setMergeMode(MergeMode mergeMode) {
+      notNull(mergeMode);
+      this.mergeMode = mergeMode;
    }
 
    @Override
@@ -34,7 +98,179 @@ public class LrOneStateGraphFactory extends AbstractLrStateGraphFactory<GrammarG
 
    @Override
    protected LrOneItem newStartItem(GrammarGraph context, Production startProduction) {
-      return LrOneItem.create(startProduction, 0, context.getGrammar().getSyntax().getEofTerminal());
+      final Grammar grammar = context.getGrammar();
+      return LrOneItem.create(grammar, startProduction, 0, grammar.getSyntax().getEofTerminal());
+   }
+
+   @Override
+   protected Set<LrOneItem> getKernel(GrammarGraph context, Set<LrOneItem> state) {
+      final Grammar grammar = context.getGrammar();
+      final List<LrOneItem> kernel = new ArrayList<>();
+      for (LrOneItem item : state) {
+         final LrZeroItem zeroItem = item.getLrZeroItem();
+         // the start production is not part of the grammar
+         if (zeroItem.getDot() > 0 || grammar.indexOf(zeroItem.getProduction()) < 0) {
+            kernel.add(item);
+         }
+      }
+      return ItemSet.of(kernel);
    }
 
+   @Override
+   protected Function<Set<LrOneItem>, ?> getCoreFunction(GrammarGraph context) {
+      return mergeMode == MergeMode.CANONICAL ? null : LrOneStateGraphFactory::getCore;
+   }
+
+   @Override
+   protected Set<LrOneItem> mergeStates(GrammarGraph context, Set<LrOneItem> registeredState,
+      Set<LrOneItem> newState) {
+      switch (mergeMode) {
+         case LALR :
+            return merge(registeredState, newState);
+         case CONFLICT_AVOIDING :
+            return introducesConflicts(context, closed(context, registeredState), closed(context, newState))
+               ? null
+               : merge(registeredState, newState);
+         case PAGER :
+            final Set<LrOneItem> kernel1 = isKernelOnly() ? registeredState : getKernel(context, registeredState);
+            final Set<LrOneItem> kernel2 = isKernelOnly() ? newState : getKernel(context, newState);
+            return isWeaklyCompatible(kernel1, kernel2) ? merge(registeredState, newState) : null;
+         default :
+            return null;
+      }
+   }
+
+   /**
+    * Merges two closed states with the same core and follows their transitions pairwise, because the merged lookaheads
+    * are propagated into the successors. A pair is not followed any further if the lookaheads of one state contain the
+    * ones of the other, as the merge then changes nothing downstream.
+    *
+    * @return <code>true</code> if the merged state or a successor has a reduce/reduce conflict that is neither in the
+    *         corresponding successor of the first nor of the second state
+    */
+   private boolean introducesConflicts(GrammarGraph context, Set<LrOneItem> state1, Set<LrOneItem> state2) {
+      final Grammar grammar = context.getGrammar();
+      final Set<List<Set<LrOneItem>>> visited = new HashSet<>();
+      final Deque<List<Set<LrOneItem>>> worklist = new ArrayDeque<>();
+      worklist.add(Arrays.asList(state1, state2));
+      while (!worklist.isEmpty()) {
+         final List<Set<LrOneItem>> pair = worklist.poll();
+         if (!visited.add(pair)) {
+            continue;
+         }
+         final Set<LrOneItem> closure1 = pair.get(0);
+         final Set<LrOneItem> closure2 = pair.get(1);
+         final Set<LrOneItem> merged = merge(closure1, closure2);
+         if (merged.equals(closure1) || merged.equals(closure2)) {
+            continue;
+         }
+         final TerminalSet conflicts = getReduceConflicts(grammar, merged);
+         conflicts.removeAll(getReduceConflicts(grammar, closure1));
+         conflicts.removeAll(getReduceConflicts(grammar, closure2));
+         if (!conflicts.isEmpty()) {
+            return true;
+         }
+         final Map<AbstractSymbol, Set<LrOneItem>> successors2 = gotoFunction.apply(context, closure2);
+         for (Entry<AbstractSymbol, Set<LrOneItem>> entry : gotoFunction.apply(context, closure1).entrySet()) {
+            // states with the same core have transitions on the same symbols
+            worklist.add(Arrays.asList(ItemSet.of(entry.getValue()), ItemSet.of(successors2.get(entry.getKey()))));
+         }
+      }
+      return false;
+   }
+
+   private Set<LrOneItem> closed(GrammarGraph context, Set<LrOneItem> state) {
+      // reductions of empty productions are no kernel items
+      return isKernelOnly() ? closure(context, state) : state;
+   }
+
+   /**
+    * @return the union of both states, which must have the same core
+    */
+   public static Set<LrOneItem> merge(Set<LrOneItem> state1, Set<LrOneItem> state2) {
+      final Map<LrZeroItem, TerminalSet> zeroItemToLookahead = new LinkedHashMap<>();
+      for (LrOneItem item : state1) {
+         zeroItemToLookahead.put(item.getLrZeroItem(), new TerminalSet(item.getLookahead()));
+      }
+      for (LrOneItem item : state2) {
+         final TerminalSet lookahead = zeroItemToLookahead.get(item.getLrZeroItem());
+         if (lookahead == null) {
+            zeroItemToLookahead.put(item.getLrZeroItem(), new TerminalSet(item.getLookahead()));
+         }
+         else {
+            lookahead.addAll(item.getLookahead());
+         }
+      }
+      final List<LrOneItem> merged = new ArrayList<>(zeroItemToLookahead.size());
+      for (Entry<LrZeroItem, TerminalSet> entry : zeroItemToLookahead.entrySet()) {
+         merged.add(new LrOneItem(entry.getKey(), entry.getValue()));
+      }
+      return ItemSet.of(merged);
+   }
+
+   /**
+    * Pager's weak compatibility test. Two kernels with the same core, whose items have the lookaheads
+    * <code>L1..Ln</code> and <code>M1..Mn</code>, are weakly compatible if for all <code>i != j</code> either
+    * <code>Li &#x2229; Mj</code> and <code>Lj &#x2229; Mi</code> are empty or <code>Li &#x2229; Lj</code> or
+    * <code>Mi &#x2229; Mj</code> is not empty. Merging weakly compatible states introduces no reduce/reduce conflicts
+    * that the canonical LR(1) automaton does not have.
+    */
+   public static boolean isWeaklyCompatible(Set<LrOneItem> kernel1, Set<LrOneItem> kernel2) {
+      final Map<LrZeroItem, TerminalSet> zeroItemToLookahead = new LinkedHashMap<>();
+      for (LrOneItem item : kernel2) {
+         zeroItemToLookahead.put(item.getLrZeroItem(), item.getLookahead());
+      }
+      final int size = kernel1.size();
+      final TerminalSet[] l = new TerminalSet[size];
+      final TerminalSet[] m = new TerminalSet[size];
+      int n = 0;
+      for (LrOneItem item : kernel1) {
+         final TerminalSet lookahead = zeroItemToLookahead.get(item.getLrZeroItem());
+         if (lookahead == null) {
+            throw new IllegalArgumentException("Kernels must have the same core");
+         }
+         l[n] = item.getLookahead();
+         m[n] = lookahead;
+         n++;
+      }
+      for (int i = 0; i < size; i++) {
+         for (int j = i + 1; j < size; j++) {
+            if ((l[i].intersects(m[j]) || l[j].intersects(m[i])) && !l[i].intersects(l[j])
+               && !m[i].intersects(m[j])) {
+               return false;
+            }
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @return the terminals on which the given closed state has more than one reduction
+    */
+   public static TerminalSet getReduceConflicts(Grammar grammar, Set<LrOneItem> state) {
+      final TerminalSet reductions = new TerminalSet(grammar);
+      final TerminalSet conflicts = new TerminalSet(grammar);
+      for (LrOneItem item : state) {
+         if (item.getLrZeroItem().isFinal()) {
+            final TerminalSet lookahead = item.getLookahead();
+            for (int t = lookahead.nextIndex(0); t > -1; t = lookahead.nextIndex(t + 1)) {
+               if (!reductions.add(t)) {
+                  conflicts.add(t);
+               }
+            }
+         }
+      }
+      return conflicts;
+   }
+
+   /**
+    * @return the LR(0) items of the given LR(1) state
+    */
+   public static Set<LrZeroItem> getCore(Set<LrOneItem> state) {
+      final List<LrZeroItem> core = new ArrayList<>(state.size());
+      for (LrOneItem item : state) {
+         core.add(item.getLrZeroItem());
+      }
+      return ItemSet.of(core);
+   }
 }
@@ -16,44 +16,63 @@
 
 package org.sourcepit.lalr.core.lr.zero;
 
-import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.function.BiFunction;
 
-import org.sourcepit.lalr.core.grammar.AbstractSymbol;
 import org.sourcepit.lalr.core.grammar.Grammar;
-import org.sourcepit.lalr.core.grammar.Production;
-import org.sourcepit.lalr.core.grammar.Variable;
 
 public class LrZeroClosureFunction implements BiFunction<Grammar, Set<LrZeroItem>, Set<LrZeroItem>> {
 
+   private volatile LrZeroItemCodec codec;
+
+   public LrZeroItemCodec getCodec(Grammar grammar) {
+      LrZeroItemCodec codec = this.codec;
+      if (codec == null || codec.getGrammar() != grammar) {
+         codec = new LrZeroItemCodec(grammar);
+         this.codec = codec;
+      }
+      return codec;
+   }
+
    @Override
-   public Set<LrZeroItem> apply(Grammar grammar, Set<LrZeroItem> startItems) {
-      final LinkedHashSet<LrZeroItem> closure = new LinkedHashSet<>();
-      closure(grammar, closure, startItems);
-      return closure;
+   public LrZeroItemSet apply(Grammar grammar, Set<LrZeroItem> startItems) {
+      if (startItems instanceof LrZeroItemSet && ((LrZeroItemSet) startItems).getCodec().getGrammar() == grammar) {
+         final LrZeroItemSet itemSet = (LrZeroItemSet) startItems;
+         return closure(itemSet.getCodec(), itemSet.getItems());
+      }
+      final LrZeroItemCodec codec = getCodec(grammar);
+      return closure(codec, codec.encode(startItems));
    }
 
-   private void closure(Grammar grammar, Set<LrZeroItem> closure, Set<LrZeroItem> items) {
-      final Set<LrZeroItem> newItems = new LinkedHashSet<>();
-      for (LrZeroItem item : items) {
-         if (closure.add(item)) {
-            if (!item.isFinal()) {
-               final AbstractSymbol symbol = item.getExpectedSymbol();
-               if (symbol instanceof Variable) {
-                  final Variable variable = (Variable) symbol;
-                  for (Production production : grammar.getProductions(variable)) {
-                     final LrZeroItem newItem = new LrZeroItem(production, 0);
-                     if (!closure.contains(newItem)) {
-                        newItems.add(newItem);
-                     }
-                  }
+   public LrZeroItemSet closure(LrZeroItemCodec codec, int[] startItems) {
+      // the closure is the union of the start items and the closure templates of their expected symbols
+      final long[] closure = new long[codec.getWordCount()];
+      for (int item : startItems) {
+         closure[item >> 6] |= 1L << item;
+         final int symbol = codec.getExpectedSymbol(item);
+         if (symbol > -1) {
+            final long[] template = codec.getClosureTemplate(symbol);
+            if (template != null) {
+               for (int i = 0; i < closure.length; i++) {
+                  closure[i] |= template[i];
                }
             }
          }
       }
-      if (!newItems.isEmpty()) {
-         closure(grammar, closure, newItems);
+
+      int size = 0;
+      for (long word : closure) {
+         size += Long.bitCount(word);
+      }
+      final int[] items = new int[size];
+      int i = 0;
+      for (int w = 0; w < closure.length; w++) {
+         long word = closure[w];
+         while (word != 0L) {
+            items[i++] = (w << 6) + Long.numberOfTrailingZeros(word);
+            word &= word - 1;
+         }
       }
+      return new LrZeroItemSet(codec, items);
    }
 }
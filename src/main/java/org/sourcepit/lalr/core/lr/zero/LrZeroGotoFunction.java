@@ -16,6 +16,7 @@
 
 package org.sourcepit.lalr.core.lr.zero;
 
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -40,6 +41,9 @@ public class LrZeroGotoFunction implements BiFunction<Grammar, Set<LrZeroItem>,
 
    @Override
    public Map<AbstractSymbol, Set<LrZeroItem>> apply(Grammar grammar, Set<LrZeroItem> closure) {
+      if (closureFunction instanceof LrZeroClosureFunction && closure instanceof LrZeroItemSet) {
+         return apply((LrZeroClosureFunction) closureFunction, (LrZeroItemSet) closure);
+      }
       final Map<AbstractSymbol, Set<LrZeroItem>> symbolGotoClosure = new LinkedHashMap<>();
       apply(grammar, symbolGotoClosure, closure);
       return symbolGotoClosure;
@@ -62,4 +66,39 @@ public class LrZeroGotoFunction implements BiFunction<Grammar, Set<LrZeroItem>,
          symbolToTargetClosure.put(entry.getKey(), closureFunction.apply(grammar, entry.getValue()));
       }
    }
+
+   private static Map<AbstractSymbol, Set<LrZeroItem>> apply(LrZeroClosureFunction closureFunction,
+      LrZeroItemSet closure) {
+      final LrZeroItemCodec codec = closure.getCodec();
+      final Grammar grammar = codec.getGrammar();
+
+      // group the advanced items by expected symbol, in order of the symbols' first occurrence
+      final int[] symbolToGroup = new int[grammar.getSymbolCount()];
+      Arrays.fill(symbolToGroup, -1);
+      final int[] groupToSymbol = new int[closure.size()];
+      final int[][] groupToItems = new int[closure.size()][];
+      final int[] groupSizes = new int[closure.size()];
+      int groupCount = 0;
+      for (int i = 0; i < closure.size(); i++) {
+         final int item = closure.getItem(i);
+         final int symbol = codec.getExpectedSymbol(item);
+         if (symbol > -1) {
+            int group = symbolToGroup[symbol];
+            if (group < 0) {
+               group = groupCount++;
+               symbolToGroup[symbol] = group;
+               groupToSymbol[group] = symbol;
+               groupToItems[group] = new int[closure.size()];
+            }
+            groupToItems[group][groupSizes[group]++] = item + 1;
+         }
+      }
+
+      final Map<AbstractSymbol, Set<LrZeroItem>> symbolToTargetClosure = new LinkedHashMap<>(groupCount * 2);
+      for (int group = 0; group < groupCount; group++) {
+         final int[] kernel = Arrays.copyOf(groupToItems[group], groupSizes[group]);
+         symbolToTargetClosure.put(grammar.getSymbol(groupToSymbol[group]), closureFunction.closure(codec, kernel));
+      }
+      return symbolToTargetClosure;
+   }
 }
@@ -22,10 +22,12 @@ import org.sourcepit.lalr.core.grammar.Production;
 public class LrZeroItem {
    private final Production production;
    private final int dot;
+   private final int hashCode;
 
    public LrZeroItem(Production production, int dot) {
       this.production = production;
       this.dot = dot;
+      this.hashCode = computeHashCode();
    }
 
    public Production getProduction() {
@@ -46,6 +48,10 @@ public class LrZeroItem {
 
    @Override
    public int hashCode() {
+      return hashCode;
+   }
+
+   private int computeHashCode() {
       final int prime = 31;
       int result = 1;
       result = prime * result + dot;
@@ -65,7 +71,7 @@ public class LrZeroItem {
          return false;
       }
       LrZeroItem other = (LrZeroItem) obj;
-      if (dot != other.dot) {
+      if (dot != other.dot || hashCode != other.hashCode) {
          return false;
       }
       if (production == null) {
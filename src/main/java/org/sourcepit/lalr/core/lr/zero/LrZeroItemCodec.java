@@ -0,0 +1,244 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr.zero;
+
+import static org.apache.commons.lang.Validate.isTrue;
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.sourcepit.lalr.core.grammar.AbstractSymbol;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.Variable;
+import org.sourcepit.lalr.core.lr.AbstractLrStateGraphFactory;
+
+/**
+ * Encodes the LR(0) items of a {@link Grammar} as dense <code>int</code> ids. The id of an item is the offset of its
+ * production plus its dot position. The items of the (derived) start production come first and the items of the
+ * grammar's productions follow in production order, so sorting ids sorts items by production and dot.
+ */
+public final class LrZeroItemCodec {
+
+   private final Grammar grammar;
+
+   private final Production startProduction;
+
+   private final int[] productionOffsets;
+
+   private final int[] itemToProduction;
+
+   private final int[] itemToDot;
+
+   private final int[] itemToExpectedSymbol;
+
+   private final int[][] symbolToInitialItems;
+
+   private final long[][] symbolToClosureTemplate;
+
+   private final LrZeroItem[] items;
+
+   public LrZeroItemCodec(Grammar grammar) {
+      this(grammar, AbstractLrStateGraphFactory.newStartProduction(grammar));
+   }
+
+   public LrZeroItemCodec(Grammar grammar, Production startProduction) {
+      notNull(grammar);
+      notNull(startProduction);
+      this.grammar = grammar;
+      this.startProduction = startProduction;
+
+      final List<Production> productions = grammar.getProductions();
+
+      // production index -1 (the start production) is stored at offset 0
+      productionOffsets = new int[productions.size() + 1];
+      int itemCount = startProduction.getRightSide().size() + 1;
+      for (int i = 0; i < productions.size(); i++) {
+         productionOffsets[i + 1] = itemCount;
+         itemCount += productions.get(i).getRightSide().size() + 1;
+      }
+
+      itemToProduction = new int[itemCount];
+      itemToDot = new int[itemCount];
+      itemToExpectedSymbol = new int[itemCount];
+      items = new LrZeroItem[itemCount];
+      for (int production = -1; production < productions.size(); production++) {
+         final Production p = production < 0 ? startProduction : productions.get(production);
+         final List<AbstractSymbol> rightSide = p.getRightSide();
+         final int offset = productionOffsets[production + 1];
+         for (int dot = 0; dot <= rightSide.size(); dot++) {
+            final int item = offset + dot;
+            itemToProduction[item] = production;
+            itemToDot[item] = dot;
+            itemToExpectedSymbol[item] = dot < rightSide.size() ? grammar.getSymbolId(rightSide.get(dot)) : -1;
+            items[item] = new LrZeroItem(p, dot);
+         }
+      }
+
+      symbolToInitialItems = new int[grammar.getSymbolCount()][];
+      for (int symbol = 0; symbol < symbolToInitialItems.length; symbol++) {
+         if (grammar.isTerminal(symbol)) {
+            symbolToInitialItems[symbol] = new int[0];
+         }
+         else {
+            final List<Production> alternatives = grammar.getProductions((Variable) grammar.getSymbol(symbol));
+            final int[] initialItems = new int[alternatives.size()];
+            for (int i = 0; i < initialItems.length; i++) {
+               initialItems[i] = productionOffsets[grammar.indexOf(alternatives.get(i)) + 1];
+            }
+            symbolToInitialItems[symbol] = initialItems;
+         }
+      }
+
+      symbolToClosureTemplate = new long[symbolToInitialItems.length][];
+      final int[] worklist = new int[itemCount];
+      for (int symbol = 0; symbol < symbolToClosureTemplate.length; symbol++) {
+         if (!grammar.isTerminal(symbol)) {
+            symbolToClosureTemplate[symbol] = newClosureTemplate(symbol, worklist);
+         }
+      }
+   }
+
+   private long[] newClosureTemplate(int variable, int[] worklist) {
+      final long[] template = new long[getWordCount()];
+      int size = 0;
+      for (int item : symbolToInitialItems[variable]) {
+         if (mark(template, item)) {
+            worklist[size++] = item;
+         }
+      }
+      for (int i = 0; i < size; i++) {
+         final int symbol = itemToExpectedSymbol[worklist[i]];
+         if (symbol > -1) {
+            for (int item : symbolToInitialItems[symbol]) {
+               if (mark(template, item)) {
+                  worklist[size++] = item;
+               }
+            }
+         }
+      }
+      return template;
+   }
+
+   private static boolean mark(long[] bits, int item) {
+      final long mask = 1L << item;
+      final long word = bits[item >> 6];
+      bits[item >> 6] = word | mask;
+      return (word & mask) == 0;
+   }
+
+   public Grammar getGrammar() {
+      return grammar;
+   }
+
+   public Production getStartProduction() {
+      return startProduction;
+   }
+
+   public int getItemCount() {
+      return items.length;
+   }
+
+   /**
+    * @return the number of <code>long</code> words of a bitset over all item ids
+    */
+   public int getWordCount() {
+      return (items.length >> 6) + 1;
+   }
+
+   public int getStartItem() {
+      return 0;
+   }
+
+   public int encode(Production production, int dot) {
+      final int productionIndex;
+      if (production == startProduction || production.equals(startProduction)) {
+         productionIndex = -1;
+      }
+      else {
+         productionIndex = grammar.indexOf(production);
+         isTrue(productionIndex > -1, "Production is not part of the grammar: ", production);
+      }
+      isTrue(dot >= 0 && dot <= production.getRightSide().size());
+      return productionOffsets[productionIndex + 1] + dot;
+   }
+
+   public int encode(LrZeroItem item) {
+      return encode(item.getProduction(), item.getDot());
+   }
+
+   public int[] encode(Collection<LrZeroItem> items) {
+      final int[] result = new int[items.size()];
+      int i = 0;
+      for (LrZeroItem item : items) {
+         result[i++] = encode(item);
+      }
+      return result;
+   }
+
+   public LrZeroItem decode(int item) {
+      return items[item];
+   }
+
+   /**
+    * @return the index of the item's production within the grammar or <code>-1</code> for the start production
+    */
+   public int getProductionIndex(int item) {
+      return itemToProduction[item];
+   }
+
+   public int getDot(int item) {
+      return itemToDot[item];
+   }
+
+   public boolean isFinal(int item) {
+      return itemToExpectedSymbol[item] < 0;
+   }
+
+   /**
+    * @return the {@link Grammar#getSymbolId(AbstractSymbol) symbol id} of the symbol after the dot or <code>-1</code>
+    *         if the item is final
+    */
+   public int getExpectedSymbol(int item) {
+      return itemToExpectedSymbol[item];
+   }
+
+   /**
+    * @return <code>true</code> if the item is the start item or its dot is not at the beginning
+    */
+   public boolean isKernelItem(int item) {
+      return item == 0 || itemToDot[item] > 0;
+   }
+
+   /**
+    * @return the items with dot position 0 of all productions of the given symbol, which is empty for terminals
+    */
+   public int[] getInitialItems(int symbol) {
+      return symbolToInitialItems[symbol];
+   }
+
+   /**
+    * Returns the items with dot position 0 that the closure of an item expecting the given symbol transitively pulls
+    * in, as a bitset over item ids with {@link #getWordCount()} words. The returned array must not be modified.
+    *
+    * @return the closure template or <code>null</code> if the symbol is a terminal
+    */
+   public long[] getClosureTemplate(int symbol) {
+      return symbolToClosureTemplate[symbol];
+   }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr.zero;
+
+import static org.apache.commons.lang.Validate.notNull;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.sourcepit.lalr.core.lr.ItemSet;
+
+/**
+ * An immutable set of LR(0) items stored as a sorted array of {@link LrZeroItemCodec item ids}. Kernel items come
+ * first, followed by the non-kernel items, each group in ascending id order. The {@link LrZeroItem} objects returned
+ * by {@link #iterator()} are views provided by the codec.
+ */
+public final class LrZeroItemSet extends ItemSet<LrZeroItem> {
+
+   private final LrZeroItemCodec codec;
+
+   private final int[] items;
+
+   /**
+    * @param items the item ids, which may be unordered and contain duplicates
+    */
+   public LrZeroItemSet(LrZeroItemCodec codec, int[] items) {
+      notNull(codec);
+      notNull(items);
+      this.codec = codec;
+      this.items = canonicalize(codec, items);
+   }
+
+   private static int[] canonicalize(LrZeroItemCodec codec, int[] items) {
+      final int itemCount = codec.getItemCount();
+      final int[] keys = new int[items.length];
+      for (int i = 0; i < items.length; i++) {
+         keys[i] = sortKey(codec, items[i]);
+      }
+      Arrays.sort(keys);
+      int size = 0;
+      for (int i = 0; i < keys.length; i++) {
+         if (size == 0 || keys[size - 1] != keys[i]) {
+            keys[size++] = keys[i];
+         }
+      }
+      final int[] result = new int[size];
+      for (int i = 0; i < size; i++) {
+         final int key = keys[i];
+         result[i] = key < itemCount ? key : key - itemCount;
+      }
+      return result;
+   }
+
+   private static int sortKey(LrZeroItemCodec codec, int item) {
+      return codec.isKernelItem(item) ? item : item + codec.getItemCount();
+   }
+
+   public LrZeroItemCodec getCodec() {
+      return codec;
+   }
+
+   /**
+    * @return the number of items at the beginning of {@link #getItems()} that are kernel items
+    */
+   public int getKernelSize() {
+      int i = 0;
+      while (i < items.length && codec.isKernelItem(items[i])) {
+         i++;
+      }
+      return i;
+   }
+
+   /**
+    * @return the kernel items of this set
+    */
+   public LrZeroItemSet getKernel() {
+      final int kernelSize = getKernelSize();
+      return kernelSize == items.length ? this : new LrZeroItemSet(codec, Arrays.copyOf(items, kernelSize));
+   }
+
+   public int getItem(int index) {
+      return items[index];
+   }
+
+   /**
+    * @return a copy of the item ids of this set in canonical order
+    */
+   public int[] getItems() {
+      return items.clone();
+   }
+
+   public boolean contains(int item) {
+      if (item < 0 || item >= codec.getItemCount()) {
+         return false;
+      }
+      final int key = sortKey(codec, item);
+      int low = 0;
+      int high = items.length - 1;
+      while (low <= high) {
+         final int mid = (low + high) >>> 1;
+         final int midKey = sortKey(codec, items[mid]);
+         if (midKey < key) {
+            low = mid + 1;
+         }
+         else if (midKey > key) {
+            high = mid - 1;
+         }
+         else {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   @Override
+   public boolean contains(Object o) {
+      if (!(o instanceof LrZeroItem)) {
+         return false;
+      }
+      final LrZeroItem item = (LrZeroItem) o;
+      try {
+         return contains(codec.encode(item));
+      }
+      catch (IllegalArgumentException e) {
+         return false;
+      }
+   }
+
+   @Override
+   public int size() {
+      return items.length;
+   }
+
+   @Override
+   public Iterator<LrZeroItem> iterator() {
+      return new Iterator<LrZeroItem>() {
+         private int next = 0;
+
+         @Override
+         public boolean hasNext() {
+            return next < items.length;
+         }
+
+         @Override
+         public LrZeroItem next() {
+            if (next >= items.length) {
+               throw new NoSuchElementException();
+            }
+            return codec.decode(items[next++]);
+         }
+      };
+   }
+
+   @Override
+   protected int computeHashCode() {
+      // as specified by Set.hashCode()
+      int hashCode = 0;
+      for (int item : items) {
+         hashCode += codec.decode(item).hashCode();
+      }
+      return hashCode;
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (o == this) {
+         return true;
+      }
+      if (o instanceof LrZeroItemSet && ((LrZeroItemSet) o).codec == codec) {
+         if (o.hashCode() != hashCode()) {
+            return false;
+         }
+         return Arrays.equals(items, ((LrZeroItemSet) o).items);
+      }
+      return super.equals(o);
+   }
+}
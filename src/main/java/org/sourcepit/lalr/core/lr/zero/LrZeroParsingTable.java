@@ -16,6 +16,7 @@
 
 package org.sourcepit.lalr.core.lr.zero;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -24,10 +25,26 @@ import org.sourcepit.lalr.core.grammar.AbstractSymbol;
 import org.sourcepit.lalr.core.grammar.Grammar;
 import org.sourcepit.lalr.core.grammar.Terminal;
 import org.sourcepit.lalr.core.grammar.Variable;
+import org.sourcepit.lalr.core.lr.LookaheadTableEmitter;
 import org.sourcepit.lalr.core.lr.LrStateGraph;
 import org.sourcepit.lalr.core.lr.ParsingTableBuilder;
 
 public class LrZeroParsingTable {
+
+   private boolean defaultReductions;
+
+   public boolean isDefaultReductions() {
+      return defaultReductions;
+   }
+
+   /**
+    * If set to <code>true</code>, consistent states are emitted with a
+    * {@link ParsingTableBuilder#defaultReduce(int) default reduction} instead of a reduction per lookahead.
+    */
+   public void setDefaultReductions(boolean defaultReductions) {
+      this.defaultReductions = defaultReductions;
+   }
+
    public void build(Grammar grammar, ParsingTableBuilder tblb) {
       final LrStateGraph<LrZeroItem> stateGraph = new LrZeroStateGraphFactory().createStateGraph(grammar);
 
@@ -42,25 +59,35 @@ public class LrZeroParsingTable {
          final Set<LrZeroItem> currentState = states.get(i);
          final Map<AbstractSymbol, Integer> currentTransitions = transitions.get(i);
 
+         final List<Integer> reductions = new ArrayList<>();
+         for (LrZeroItem item : currentState) {
+            if (item.isFinal()) {
+               reductions.add(Integer.valueOf(grammar.indexOf(item.getProduction())));
+            }
+         }
+
+         final int defaultReduction = defaultReductions
+            ? LookaheadTableEmitter.getDefaultReduction(currentTransitions, reductions)
+            : LookaheadTableEmitter.NO_DEFAULT_REDUCTION;
+         if (defaultReduction != LookaheadTableEmitter.NO_DEFAULT_REDUCTION) {
+            tblb.defaultReduce(defaultReduction);
+            reductions.clear();
+         }
+
          for (Terminal terminal : grammar.getTerminals()) {
             Integer target = currentTransitions.get(terminal);
             if (target != null) {
                tblb.shift(terminal, target);
             }
-            for (LrZeroItem item : currentState) {
-               if (item.isFinal()) {
-                  if (!item.getProduction().getLeftSide().toString().equals("<start>")) {
-                     int production = grammar.getProductions().indexOf(item.getProduction());
-                     tblb.reduce(terminal, production);
-                  }
+            for (Integer production : reductions) {
+               // accept (reduction of the start production) only on end of input
+               if (production.intValue() > -1) {
+                  tblb.reduce(terminal, production.intValue());
                }
             }
          }
-         for (LrZeroItem item : currentState) {
-            if (item.isFinal()) {
-               int production = grammar.getProductions().indexOf(item.getProduction());
-               tblb.reduce(null, production);
-            }
+         for (Integer production : reductions) {
+            tblb.reduce(null, production.intValue());
          }
          for (Variable variable : grammar.getVariables()) {
             Integer target = currentTransitions.get(variable);
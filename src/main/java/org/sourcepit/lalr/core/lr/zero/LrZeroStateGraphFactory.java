@@ -16,13 +16,22 @@
 
 package org.sourcepit.lalr.core.lr.zero;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 import org.sourcepit.lalr.core.grammar.Grammar;
 import org.sourcepit.lalr.core.grammar.Production;
 import org.sourcepit.lalr.core.lr.AbstractLrStateGraphFactory;
+import org.sourcepit.lalr.core.lr.ItemSet;
 
 public class LrZeroStateGraphFactory extends AbstractLrStateGraphFactory<Grammar, LrZeroItem> {
    public LrZeroStateGraphFactory() {
-      super(new LrZeroClosureFunction(), new LrZeroGotoFunction(new LrZeroClosureFunction()));
+      this(new LrZeroClosureFunction());
+   }
+
+   private LrZeroStateGraphFactory(LrZeroClosureFunction closureFunction) {
+      super(closureFunction, new LrZeroGotoFunction(closureFunction));
    }
 
    @Override
@@ -34,4 +43,19 @@ public class LrZeroStateGraphFactory extends AbstractLrStateGraphFactory<Grammar
    protected LrZeroItem newStartItem(Grammar context, Production startProduction) {
       return new LrZeroItem(startProduction, 0);
    }
+
+   @Override
+   protected Set<LrZeroItem> getKernel(Grammar grammar, Set<LrZeroItem> state) {
+      if (state instanceof LrZeroItemSet) {
+         return ((LrZeroItemSet) state).getKernel();
+      }
+      final List<LrZeroItem> kernel = new ArrayList<>();
+      for (LrZeroItem item : state) {
+         // the start production is not part of the grammar
+         if (item.getDot() > 0 || grammar.indexOf(item.getProduction()) < 0) {
+            kernel.add(item);
+         }
+      }
+      return ItemSet.of(kernel);
+   }
 }
@@ -17,6 +17,9 @@
 package org.sourcepit.lalr.core.grammar;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
@@ -28,6 +31,20 @@ public class GrammarTest {
 
    private final Syntax syntax = new SimpleSyntax();
 
+   @Test
+   public void testProductionCopiesRightSide() {
+      Variable s = syntax.createVariable("S");
+      List<AbstractSymbol> rightSide = new ArrayList<>();
+      rightSide.add(syntax.createTerminal("a"));
+      Production production = new Production(s, rightSide, "S = a");
+      final int hashCode = production.hashCode();
+
+      rightSide.add(syntax.createTerminal("b"));
+      assertEquals(1, production.getRightSide().size());
+      assertEquals(hashCode, production.hashCode());
+      assertEquals(new Production(s, production.getRightSide(), "S = a"), production);
+   }
+
    @Test
    public void testUndefinedVariable() throws Exception {
       List<Production> productions = new ArrayList<Production>();
@@ -54,4 +71,66 @@ public class GrammarTest {
       }
    }
 
+   @Test
+   public void testSymbolIds() throws Exception {
+      List<Production> productions = new ArrayList<Production>();
+      productions.add(syntax.parseProduction("S = A b"));
+      productions.add(syntax.parseProduction("A = a A"));
+      productions.add(syntax.parseProduction("A = "));
+
+      Grammar grammar = new Grammar(syntax, productions);
+      assertEquals(5, grammar.getSymbolCount());
+
+      // terminals first
+      assertEquals(0, grammar.getSymbolId(syntax.createTerminal("b")));
+      assertEquals(1, grammar.getSymbolId(syntax.createTerminal("a")));
+      assertEquals(2, grammar.getSymbolId(syntax.getEofTerminal()));
+      assertEquals(3, grammar.getSymbolId(syntax.createVariable("S")));
+      assertEquals(4, grammar.getSymbolId(syntax.createVariable("A")));
+      assertEquals(-1, grammar.getSymbolId(syntax.createTerminal("c")));
+
+      for (int id = 0; id < grammar.getSymbolCount(); id++) {
+         final AbstractSymbol symbol = grammar.getSymbol(id);
+         assertEquals(id, grammar.getSymbolId(symbol));
+         if (grammar.isTerminal(id)) {
+            assertSame(grammar.getTerminals().get(id), symbol);
+         }
+         else {
+            assertSame(grammar.getVariables().get(id - grammar.getTerminals().size()), symbol);
+         }
+      }
+
+      assertTrue(grammar.isTerminal(2));
+      assertFalse(grammar.isTerminal(3));
+   }
+
+   @Test
+   public void testIndexOf() throws Exception {
+      List<Production> productions = new ArrayList<Production>();
+      productions.add(syntax.parseProduction("S = A b"));
+      productions.add(syntax.parseProduction("A = a A"));
+      productions.add(syntax.parseProduction("A = "));
+
+      Grammar grammar = new Grammar(syntax, productions);
+
+      for (int i = 0; i < productions.size(); i++) {
+         assertEquals(i, grammar.indexOf(productions.get(i)));
+         assertEquals(i, grammar.indexOf(syntax.parseProduction(productions.get(i).toString())));
+      }
+      assertEquals(-1, grammar.indexOf(syntax.parseProduction("A = b")));
+
+      for (int i = 0; i < grammar.getTerminals().size(); i++) {
+         assertEquals(i, grammar.indexOf(grammar.getTerminals().get(i)));
+      }
+      assertEquals(-1, grammar.indexOf(syntax.createTerminal("c")));
+
+      for (int i = 0; i < grammar.getVariables().size(); i++) {
+         assertEquals(i, grammar.indexOf(grammar.getVariables().get(i)));
+      }
+      assertEquals(-1, grammar.indexOf(syntax.createVariable("B")));
+
+      assertSame(grammar.getVariables().get(1), grammar.getVariable("A"));
+      assertEquals(null, grammar.getVariable("B"));
+   }
+
 }
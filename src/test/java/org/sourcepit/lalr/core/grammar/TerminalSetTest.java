@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.grammar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TerminalSetTest {
+
+   private final Syntax syntax = new SimpleSyntax();
+
+   private Grammar newGrammar(int terminals) {
+      final StringBuilder rightSide = new StringBuilder();
+      for (int i = 0; i < terminals; i++) {
+         rightSide.append(" t");
+         rightSide.append(i);
+      }
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S =" + rightSide));
+      return new Grammar(syntax, productions);
+   }
+
+   @Test
+   public void testAddRemove() {
+      Grammar grammar = newGrammar(3);
+      Terminal t0 = grammar.getTerminals().get(0);
+      Terminal t2 = grammar.getTerminals().get(2);
+      Terminal eof = syntax.getEofTerminal();
+
+      TerminalSet set = new TerminalSet(grammar);
+      assertTrue(set.isEmpty());
+      assertTrue(set.add(t2));
+      assertFalse(set.add(t2));
+      assertTrue(set.add(eof));
+      assertTrue(set.add(t0));
+      assertTrue(set.add((Terminal) null));
+      assertEquals(4, set.size());
+      assertEquals("[t0, t2, $, null]", set.toString());
+
+      assertTrue(set.containsEmpty());
+      assertTrue(set.contains(null));
+      assertTrue(set.removeEmpty());
+      assertFalse(set.contains(null));
+      assertTrue(set.remove(t0));
+      assertFalse(set.contains(t0));
+      assertFalse(set.contains(syntax.createTerminal("x")));
+      assertEquals("[t2, $]", set.toString());
+   }
+
+   @Test
+   public void testUnion() {
+      Grammar grammar = newGrammar(100);
+      List<Terminal> terminals = grammar.getTerminals();
+
+      TerminalSet set1 = new TerminalSet(grammar);
+      set1.add(terminals.get(1));
+      set1.add(terminals.get(70));
+
+      TerminalSet set2 = new TerminalSet(grammar);
+      set2.add(terminals.get(70));
+      set2.add(terminals.get(99));
+      set2.addEmpty();
+
+      TerminalSet union = new TerminalSet(set1);
+      assertTrue(union.addAllTerminals(set2));
+      assertFalse(union.addAllTerminals(set2));
+      assertFalse(union.containsEmpty());
+      assertEquals("[t1, t70, t99]", union.toString());
+
+      assertTrue(union.addAll(set2));
+      assertTrue(union.containsEmpty());
+      assertEquals(4, union.size());
+
+      // set1 must be left untouched
+      assertEquals("[t1, t70]", set1.toString());
+   }
+
+   @Test
+   public void testIntersects() {
+      Grammar grammar = newGrammar(100);
+      List<Terminal> terminals = grammar.getTerminals();
+
+      TerminalSet set1 = new TerminalSet(grammar);
+      set1.add(terminals.get(1));
+      set1.add(terminals.get(70));
+
+      TerminalSet set2 = new TerminalSet(grammar);
+      set2.add(terminals.get(99));
+      assertFalse(set1.intersects(set2));
+
+      set2.add(terminals.get(70));
+      assertTrue(set1.intersects(set2));
+      assertTrue(set2.intersects(set1));
+   }
+
+   @Test
+   public void testSetContract() {
+      Grammar grammar = newGrammar(70);
+      List<Terminal> terminals = grammar.getTerminals();
+
+      TerminalSet set = new TerminalSet(grammar);
+      set.add(terminals.get(3));
+      set.add(terminals.get(65));
+      set.addEmpty();
+
+      Set<Terminal> hashSet = new HashSet<>(Arrays.asList(terminals.get(65), null, terminals.get(3)));
+      assertEquals(hashSet, set);
+      assertFalse(set.equals(hashSet));
+
+      TerminalSet copy = new TerminalSet(grammar);
+      copy.addAll(hashSet);
+      assertEquals(set, copy);
+      assertEquals(set.hashCode(), copy.hashCode());
+
+      TerminalSet other = new TerminalSet(newGrammar(70));
+      other.add(other.getGrammar().getTerminals().get(3));
+      other.add(other.getGrammar().getTerminals().get(65));
+      other.addEmpty();
+      assertFalse(set.equals(other));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testDifferentGrammars() {
+      TerminalSet set = new TerminalSet(newGrammar(3));
+      set.addAll(new TerminalSet(newGrammar(3)));
+   }
+
+}
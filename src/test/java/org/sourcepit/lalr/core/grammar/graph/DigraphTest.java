@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.grammar.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.SimpleSyntax;
+import org.sourcepit.lalr.core.grammar.Syntax;
+import org.sourcepit.lalr.core.grammar.TerminalSet;
+
+public class DigraphTest {
+
+   private static Grammar newGrammar() {
+      Syntax syntax = new SimpleSyntax();
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = a b c d e"));
+      return new Grammar(syntax, productions);
+   }
+
+   private static TerminalSet[] newSets(Grammar grammar, int count) {
+      TerminalSet[] sets = new TerminalSet[count];
+      for (int i = 0; i < count; i++) {
+         sets[i] = new TerminalSet(grammar);
+         sets[i].add(i);
+      }
+      return sets;
+   }
+
+   @Test
+   public void testChain() {
+      Grammar grammar = newGrammar();
+      TerminalSet[] sets = newSets(grammar, 4);
+      Digraph.traverse(new int[][] { { 1 }, { 2 }, { 3 }, {} }, sets);
+      assertEquals("[a, b, c, d]", sets[0].toString());
+      assertEquals("[b, c, d]", sets[1].toString());
+      assertEquals("[c, d]", sets[2].toString());
+      assertEquals("[d]", sets[3].toString());
+   }
+
+   @Test
+   public void testCycle() {
+      Grammar grammar = newGrammar();
+      TerminalSet[] sets = newSets(grammar, 5);
+      // 0 -> 1 -> 2 -> 1, 2 -> 3, 4 -> 0
+      Digraph.traverse(new int[][] { { 1 }, { 2 }, { 1, 3 }, {}, { 0 } }, sets);
+      assertEquals("[a, b, c, d]", sets[0].toString());
+      assertEquals("[b, c, d]", sets[1].toString());
+      assertEquals("[b, c, d]", sets[2].toString());
+      assertEquals("[d]", sets[3].toString());
+      assertEquals("[a, b, c, d, e]", sets[4].toString());
+   }
+
+   @Test
+   public void testShareComponents() {
+      Grammar grammar = newGrammar();
+      TerminalSet[] sets = newSets(grammar, 5);
+      Digraph.traverse(new int[][] { { 1 }, { 2 }, { 1, 3 }, {}, { 0 } }, sets, true);
+      assertEquals("[a, b, c, d]", sets[0].toString());
+      assertEquals("[b, c, d]", sets[1].toString());
+      assertSame(sets[1], sets[2]);
+      assertNotSame(sets[0], sets[1]);
+      assertEquals("[a, b, c, d, e]", sets[4].toString());
+   }
+
+   @Test
+   public void testSelfLoopAndDeepChain() {
+      Grammar grammar = newGrammar();
+      final int count = 100000;
+      int[][] relation = new int[count][];
+      TerminalSet[] sets = new TerminalSet[count];
+      for (int i = 0; i < count; i++) {
+         relation[i] = i + 1 < count ? new int[] { i, i + 1 } : new int[] { i };
+         sets[i] = new TerminalSet(grammar);
+      }
+      sets[count - 1].add(0);
+      Digraph.traverse(relation, sets);
+      assertEquals("[a]", sets[0].toString());
+   }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.grammar.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.SimpleSyntax;
+import org.sourcepit.lalr.core.grammar.Syntax;
+
+public class FirstFollowSolverTest {
+
+   private final Syntax syntax = new SimpleSyntax();
+
+   private GrammarGraph solve(List<Production> productions) {
+      final GrammarGraph graph = new GrammarGraph(new Grammar(syntax, productions));
+      FirstFollowSolver.solve(graph);
+      return graph;
+   }
+
+   @Test
+   public void testNullableSequence() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A B C D E"));
+      productions.add(syntax.parseProduction("A = a"));
+      productions.add(syntax.parseProduction("A = "));
+      productions.add(syntax.parseProduction("B = b"));
+      productions.add(syntax.parseProduction("B = "));
+      productions.add(syntax.parseProduction("C = c"));
+      productions.add(syntax.parseProduction("D = d"));
+      productions.add(syntax.parseProduction("D = "));
+      productions.add(syntax.parseProduction("E = e"));
+      productions.add(syntax.parseProduction("E = "));
+
+      GrammarGraph graph = solve(productions);
+
+      assertFalse(graph.getVariableNode("S").isNullable());
+      assertTrue(graph.getVariableNode("A").isNullable());
+      assertFalse(graph.getVariableNode("C").isNullable());
+
+      assertEquals("[a, b, c]", graph.getVariableNode("S").getFirstSet().toString());
+      assertEquals("[a, null]", graph.getVariableNode("A").getFirstSet().toString());
+      assertEquals("[c]", graph.getVariableNode("C").getFirstSet().toString());
+
+      assertEquals("[null]", graph.getVariableNode("S").getFollowSet().toString());
+      assertEquals("[b, c]", graph.getVariableNode("A").getFollowSet().toString());
+      assertEquals("[c]", graph.getVariableNode("B").getFollowSet().toString());
+      assertEquals("[d, e, null]", graph.getVariableNode("C").getFollowSet().toString());
+      assertEquals("[e, null]", graph.getVariableNode("D").getFollowSet().toString());
+      assertEquals("[null]", graph.getVariableNode("E").getFollowSet().toString());
+   }
+
+   @Test
+   public void testLeftRecursion() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("E = E plus T"));
+      productions.add(syntax.parseProduction("E = T"));
+      productions.add(syntax.parseProduction("T = T times F"));
+      productions.add(syntax.parseProduction("T = F"));
+      productions.add(syntax.parseProduction("F = open E close"));
+      productions.add(syntax.parseProduction("F = id"));
+
+      GrammarGraph graph = solve(productions);
+
+      assertEquals(set("open", "id"), new HashSet<>(graph.getVariableNode("E").getFirstSet()));
+      assertEquals(set("open", "id"), new HashSet<>(graph.getVariableNode("T").getFirstSet()));
+      assertEquals(set("open", "id"), new HashSet<>(graph.getVariableNode("F").getFirstSet()));
+
+      assertEquals(set("plus", "close", null), new HashSet<>(graph.getVariableNode("E").getFollowSet()));
+      assertEquals(set("plus", "times", "close", null), new HashSet<>(graph.getVariableNode("T").getFollowSet()));
+      assertEquals(set("plus", "times", "close", null), new HashSet<>(graph.getVariableNode("F").getFollowSet()));
+   }
+
+   @Test
+   public void testRecursiveNullable() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A"));
+      productions.add(syntax.parseProduction("A = S"));
+      productions.add(syntax.parseProduction("A = a"));
+
+      // nullable is the least fixed point
+      GrammarGraph graph = solve(productions);
+      assertFalse(graph.getVariableNode("S").isNullable());
+      assertFalse(graph.getVariableNode("A").isNullable());
+   }
+
+   @Test
+   public void testNullableRecursion() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A B"));
+      productions.add(syntax.parseProduction("A = B A a"));
+      productions.add(syntax.parseProduction("A = "));
+      productions.add(syntax.parseProduction("B = A b"));
+      productions.add(syntax.parseProduction("B = S"));
+      productions.add(syntax.parseProduction("B = "));
+
+      GrammarGraph graph = solve(productions);
+
+      // S, A and B are mutually recursive and all nullable
+      assertTrue(graph.getVariableNode("S").isNullable());
+      assertTrue(graph.getVariableNode("B").isNullable());
+      assertEquals(set("a", "b", null), new HashSet<>(graph.getVariableNode("S").getFirstSet()));
+      assertEquals(set("a", "b", null), new HashSet<>(graph.getVariableNode("A").getFollowSet()));
+      assertEquals(set("a", "b", null), new HashSet<>(graph.getVariableNode("B").getFollowSet()));
+   }
+
+   @Test
+   public void testSharedComponentSets() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A"));
+      productions.add(syntax.parseProduction("A = B x"));
+      productions.add(syntax.parseProduction("A = C"));
+      productions.add(syntax.parseProduction("B = A y"));
+      productions.add(syntax.parseProduction("B = b"));
+      productions.add(syntax.parseProduction("B = D"));
+      productions.add(syntax.parseProduction("C = B"));
+      productions.add(syntax.parseProduction("C = "));
+      productions.add(syntax.parseProduction("D = B z"));
+
+      GrammarGraph graph = solve(productions);
+
+      // A, B, C and D form a strongly connected component of the first relation, A and C are nullable
+      assertEquals(set("b", "y"), new HashSet<>(graph.getVariableNode("B").getFirstSet()));
+      assertEquals(set("b", "y", null), new HashSet<>(graph.getVariableNode("C").getFirstSet()));
+      assertSame(graph.getVariableNode("B").getFirstSet(), graph.getVariableNode("D").getFirstSet());
+      assertNotSame(graph.getVariableNode("B").getFirstSet(), graph.getVariableNode("C").getFirstSet());
+      assertEquals(set("y", null), new HashSet<>(graph.getVariableNode("C").getFollowSet()));
+   }
+
+   @Test
+   public void testLargeGrammar() {
+      // a chain of left recursive variables where every variable begins with the next one
+      final int depth = 5000;
+      List<Production> productions = new ArrayList<>();
+      for (int i = 0; i < depth; i++) {
+         productions.add(syntax.parseProduction("V" + i + " = V" + i + " s" + i));
+         productions.add(syntax.parseProduction("V" + i + " = V" + (i + 1)));
+      }
+      productions.add(syntax.parseProduction("V" + depth + " = x"));
+
+      GrammarGraph graph = solve(productions);
+
+      assertEquals(set("x"), new HashSet<>(graph.getVariableNode("V0").getFirstSet()));
+      assertEquals(depth + 1, graph.getVariableNode("V" + depth).getFollowSet().size());
+   }
+
+   private HashSet<Object> set(String... terminals) {
+      final HashSet<Object> result = new HashSet<>();
+      for (String terminal : terminals) {
+         result.add(terminal == null ? null : syntax.createTerminal(terminal));
+      }
+      return result;
+   }
+}
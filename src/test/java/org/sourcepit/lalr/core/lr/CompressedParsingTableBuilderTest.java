@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.ACCEPT;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.ERROR;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.REDUCE;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.SHIFT;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.getActionType;
+import static org.sourcepit.lalr.core.lr.PrimitiveParsingTable.getData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.SimpleSyntax;
+import org.sourcepit.lalr.core.grammar.Syntax;
+import org.sourcepit.lalr.core.grammar.Terminal;
+import org.sourcepit.lalr.core.lr.lalr.LalrParsingTable;
+
+public class CompressedParsingTableBuilderTest {
+
+   private final Syntax syntax = new SimpleSyntax();
+
+   private Grammar newExpressionGrammar() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("E = E plus T"));
+      productions.add(syntax.parseProduction("E = T"));
+      productions.add(syntax.parseProduction("T = T times F"));
+      productions.add(syntax.parseProduction("T = F"));
+      productions.add(syntax.parseProduction("F = lp E rp"));
+      productions.add(syntax.parseProduction("F = id"));
+      return new Grammar(syntax, productions);
+   }
+
+   @Test
+   public void testSameActionsAsDenseTable() {
+      Grammar grammar = newExpressionGrammar();
+
+      ShortTableBuilder dense = new ShortTableBuilder();
+      new LalrParsingTable().build(grammar, dense);
+
+      for (boolean defaultReductions : new boolean[] { false, true }) {
+         CompressedParsingTableBuilder tblb = new CompressedParsingTableBuilder();
+         tblb.setDefaultReductions(defaultReductions);
+         new LalrParsingTable().build(grammar, tblb);
+         CompressedParsingTable table = tblb.getParsingTable();
+
+         short[][] actionTable = dense.getActionTable();
+         short[][] gotoTable = dense.getGotoTable();
+         assertEquals(actionTable.length, table.getStateCount());
+         for (int state = 0; state < actionTable.length; state++) {
+            for (int terminal = 0; terminal < actionTable[state].length; terminal++) {
+               short cell = actionTable[state][terminal];
+               int action = table.getAction(state, terminal);
+               if (cell == 0) {
+                  // default reductions may replace errors
+                  if (defaultReductions) {
+                     assertTrue(action == ERROR || action == table.getDefaultAction(state));
+                  }
+                  else {
+                     assertEquals(ERROR, action);
+                  }
+                  continue;
+               }
+               switch (ParsingTableTest.getAction(cell)) {
+                  case ParsingTableTest.ACTION_SHIFT :
+                     assertEquals(SHIFT, getActionType(action));
+                     break;
+                  case ParsingTableTest.ACTION_REDUCE :
+                     assertEquals(REDUCE, getActionType(action));
+                     break;
+                  default :
+                     assertEquals(ACCEPT, getActionType(action));
+                     continue;
+               }
+               assertEquals(ParsingTableTest.getData(cell), getData(action));
+            }
+            for (int variable = 0; variable < gotoTable[state].length; variable++) {
+               int target = table.getGoto(state, variable);
+               if (target > -1) {
+                  assertEquals(gotoTable[state][variable], target);
+               }
+            }
+         }
+      }
+   }
+
+   @Test
+   public void testParse() {
+      Grammar grammar = newExpressionGrammar();
+      CompressedParsingTableBuilder tblb = new CompressedParsingTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+      CompressedParsingTable table = tblb.getParsingTable();
+
+      // plus, times, lp, rp, id
+      List<Terminal> terminals = grammar.getTerminals();
+      Terminal plus = terminals.get(0), times = terminals.get(1), lp = terminals.get(2), rp = terminals.get(3),
+         id = terminals.get(4);
+      new Parser<Terminal>(table, grammar::indexOf).parse(Arrays.asList(id, plus, lp, id, times, id, rp).iterator());
+   }
+
+   @Test
+   public void testConsistentStates() {
+      Grammar grammar = newExpressionGrammar();
+      LalrParsingTable generator = new LalrParsingTable();
+      generator.setDefaultReductions(true);
+      CompressedParsingTableBuilder tblb = new CompressedParsingTableBuilder();
+      tblb.setDefaultReductions(false);
+      generator.build(grammar, tblb);
+      CompressedParsingTable table = tblb.getParsingTable();
+
+      // F = id. reduces without reading the lookahead
+      Terminal id = grammar.getTerminals().get(4);
+
+      int afterId = getData(table.getAction(0, 4));
+      assertTrue(table.isConsistent(afterId));
+      assertEquals(REDUCE | 5, table.getAction(afterId, 0));
+      assertEquals(REDUCE | 5, table.getConsistentAction(afterId));
+      assertTrue(!table.isConsistent(0));
+      assertEquals(ERROR, table.getConsistentAction(0));
+
+      Terminal plus = grammar.getTerminals().get(0);
+      new Parser<Terminal>(table, grammar::indexOf).parse(Arrays.asList(id, plus, id).iterator());
+   }
+
+   @Test
+   public void testCompression() {
+      // sparse rows: every state has a single action
+      StringBuilder sb = new StringBuilder("S =");
+      for (int i = 0; i < 50; i++) {
+         sb.append(" t").append(i);
+      }
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction(sb.toString()));
+      Grammar grammar = new Grammar(syntax, productions);
+
+      CompressedParsingTableBuilder tblb = new CompressedParsingTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+      CompressedParsingTable table = tblb.getParsingTable();
+
+      int denseSize = table.getStateCount() * (grammar.getTerminals().size() + 1 + grammar.getVariables().size());
+      assertTrue(table.getSize() * 4 < denseSize);
+   }
+
+   @Test
+   public void testConflict() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("E = E plus E"));
+      productions.add(syntax.parseProduction("E = id"));
+      Grammar grammar = new Grammar(syntax, productions);
+      try {
+         new LalrParsingTable().build(grammar, new CompressedParsingTableBuilder());
+         fail();
+      }
+      catch (IllegalStateException e) {
+         assertTrue(e.getMessage().startsWith("Conflict on plus"));
+      }
+   }
+}
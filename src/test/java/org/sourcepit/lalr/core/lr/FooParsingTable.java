@@ -25,10 +25,12 @@ import org.sourcepit.lalr.core.grammar.Variable;
 
 public class FooParsingTable implements ParsingTable<String, Production> {
    private final Grammar grammar;
+   private final TerminalClassifier<CharSequence> classifier;
    private short[][] actionTable, gotoTable;
 
    public FooParsingTable(Grammar grammar, short[][] actionTable, short[][] gotoTable) {
       this.grammar = grammar;
+      this.classifier = TerminalClassifier.forNames(grammar);
       this.actionTable = actionTable;
       this.gotoTable = gotoTable;
    }
@@ -53,19 +55,14 @@ public class FooParsingTable implements ParsingTable<String, Production> {
    @Override
    public int getGoto(int state, Production production) {
       final Variable variable = production.getLeftSide();
-      return gotoTable[state][grammar.getVariables().indexOf(variable)];
+      return gotoTable[state][grammar.indexOf(variable)];
    }
 
    private int indexOf(String token) {
       if (token == null) {
          return grammar.getTerminals().size();
       }
-      for (int i = 0; i < grammar.getTerminals().size(); i++) {
-         if (grammar.getTerminals().get(i).toString().equals(token)) {
-            return i;
-         }
-      }
-      return -1;
+      return classifier.getTerminal(token);
    }
 
 }
@@ -31,11 +31,11 @@ public class FooParsingTableBuilder implements ParsingTableBuilder {
       if (terminal == null) {
          return idxEof;
       }
-      return grammar.getTerminals().indexOf(terminal);
+      return grammar.indexOf(terminal);
    }
 
    private int indexOf(Variable variable) {
-      return grammar.getTerminals().size() + 1 + grammar.getVariables().indexOf(variable);
+      return grammar.getTerminals().size() + 1 + grammar.indexOf(variable);
    }
 
    /**
@@ -85,6 +85,18 @@ public class FooParsingTableBuilder implements ParsingTableBuilder {
       }
    }
 
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void defaultReduce(int production) {
+      for (int i = 0; i <= idxEof; i++) {
+         if (currentState[i] == null) {
+            currentState[i] = "r" + production;
+         }
+      }
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.SimpleSyntax;
+import org.sourcepit.lalr.core.grammar.Syntax;
+import org.sourcepit.lalr.core.lr.zero.LrZeroItem;
+
+public class ItemSetTest {
+
+   @Test
+   public void testOf() {
+      ItemSet<String> itemSet = ItemSet.of(Arrays.asList("b", "a", "b"));
+      assertEquals("[b, a]", itemSet.toString());
+      assertSame(itemSet, ItemSet.of(itemSet));
+   }
+
+   @Test(expected = UnsupportedOperationException.class)
+   public void testImmutable() {
+      ItemSet.of(Arrays.asList("a")).add("b");
+   }
+
+   @Test
+   public void testSetContract() {
+      Set<String> expected = new HashSet<>(Arrays.asList("a", "b"));
+      ItemSet<String> itemSet = ItemSet.of(Arrays.asList("b", "a"));
+      assertEquals(expected, itemSet);
+      assertEquals(itemSet, expected);
+      assertEquals(expected.hashCode(), itemSet.hashCode());
+      assertEquals(itemSet, ItemSet.of(expected));
+      assertNotEquals(itemSet, ItemSet.of(Arrays.asList("a", "c")));
+   }
+
+   @Test
+   public void testItemsAsKeys() {
+      Syntax syntax = new SimpleSyntax();
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A A"));
+      productions.add(syntax.parseProduction("A = a A"));
+      productions.add(syntax.parseProduction("A = b"));
+      Grammar grammar = new Grammar(syntax, productions);
+
+      Production pa1 = grammar.getProductions().get(1);
+      Production copy = syntax.parseProduction("A = a A");
+      assertEquals(pa1, copy);
+      assertEquals(pa1.hashCode(), copy.hashCode());
+
+      Set<Set<LrZeroItem>> states = new LinkedHashSet<>();
+      states.add(ItemSet.of(Arrays.asList(new LrZeroItem(pa1, 1), new LrZeroItem(pa1, 0))));
+      states.add(ItemSet.of(Arrays.asList(new LrZeroItem(copy, 0), new LrZeroItem(copy, 1))));
+      assertEquals(1, states.size());
+   }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.sourcepit.lalr.core.grammar.AbstractSymbol;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.SimpleSyntax;
+import org.sourcepit.lalr.core.grammar.Syntax;
+import org.sourcepit.lalr.core.lr.zero.LrZeroItem;
+import org.sourcepit.lalr.core.lr.zero.LrZeroStateGraphFactory;
+
+public class LrStateRegistryTest {
+
+   @Test
+   public void testRegister() {
+      LrStateRegistry<String> registry = new LrStateRegistry<>();
+      Set<String> s0 = ItemSet.of(asList("a", "b"));
+      Set<String> s1 = ItemSet.of(asList("c"));
+
+      assertEquals(0, registry.register(s0));
+      assertEquals(1, registry.register(s1));
+      assertEquals(2, registry.size());
+      assertSame(s1, registry.getState(1));
+
+      assertEquals(0, registry.indexOf(ItemSet.of(asList("b", "a"))));
+      assertEquals(1, registry.indexOf(Collections.singleton("c")));
+      assertEquals(-1, registry.indexOf(ItemSet.of(asList("a"))));
+      assertTrue(registry.getStatesWithCore(s0).isEmpty());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testRegisterTwice() {
+      LrStateRegistry<String> registry = new LrStateRegistry<>();
+      registry.register(ItemSet.of(asList("a")));
+      registry.register(ItemSet.of(asList("a")));
+   }
+
+   @Test
+   public void testCoreIndex() {
+      LrStateRegistry<String> registry = new LrStateRegistry<>(state -> state.size());
+      registry.register(ItemSet.of(asList("a", "b")));
+      registry.register(ItemSet.of(asList("c")));
+      registry.register(ItemSet.of(asList("d", "e")));
+
+      assertEquals(asList(0, 2), registry.getStatesWithCore(2));
+      assertEquals(asList(1), registry.getStatesWithCore(1));
+      assertTrue(registry.getStatesWithCore(3).isEmpty());
+   }
+
+   @Test
+   public void testStateGraphTransitions() {
+      Syntax syntax = new SimpleSyntax();
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A A"));
+      productions.add(syntax.parseProduction("A = a A"));
+      productions.add(syntax.parseProduction("A = b"));
+      Grammar grammar = new Grammar(syntax, productions);
+
+      LrStateGraph<LrZeroItem> stateGraph = new LrZeroStateGraphFactory().createStateGraph(grammar);
+      List<Map<AbstractSymbol, Integer>> transitions = stateGraph.getTransitions();
+      assertEquals(7, stateGraph.getStates().size());
+      assertEquals(7, transitions.size());
+      for (int i = 1; i < transitions.size(); i++) {
+         assertNotSame(transitions.get(0), transitions.get(i));
+      }
+      assertEquals(4, transitions.get(0).size());
+      // states with a final item have no outgoing transitions
+      assertTrue(transitions.get(1).isEmpty());
+   }
+}
@@ -18,6 +18,8 @@ package org.sourcepit.lalr.core.lr;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -30,6 +32,7 @@ import org.sourcepit.lalr.core.grammar.Production;
 import org.sourcepit.lalr.core.grammar.SimpleSyntax;
 import org.sourcepit.lalr.core.grammar.Syntax;
 import org.sourcepit.lalr.core.grammar.Terminal;
+import org.sourcepit.lalr.core.lr.lalr.LalrParsingTable;
 import org.sourcepit.lalr.core.lr.zero.LrZeroParsingTable;
 
 public class ParserTest {
@@ -64,11 +67,11 @@ public class ParserTest {
       /* state 0 */
       action = parsingTable.getAction(0, tA);
       assertEquals(ParserActionType.SHIFT, action.getType());
-      assertEquals(4, action.asShift().getNextState());
+      assertEquals(3, action.asShift().getNextState());
 
       action = parsingTable.getAction(0, tB);
       assertEquals(ParserActionType.SHIFT, action.getType());
-      assertEquals(6, action.asShift().getNextState());
+      assertEquals(4, action.asShift().getNextState());
 
       action = parsingTable.getAction(0, t$);
       assertNull(action);
@@ -86,65 +89,65 @@ public class ParserTest {
       /* state 2 */
       action = parsingTable.getAction(2, tA);
       assertEquals(ParserActionType.SHIFT, action.getType());
-      assertEquals(4, action.asShift().getNextState());
+      assertEquals(3, action.asShift().getNextState());
 
       action = parsingTable.getAction(2, tB);
       assertEquals(ParserActionType.SHIFT, action.getType());
-      assertEquals(6, action.asShift().getNextState());
+      assertEquals(4, action.asShift().getNextState());
 
       action = parsingTable.getAction(2, t$);
       assertNull(action);
 
       /* state 3 */
       action = parsingTable.getAction(3, tA);
-      assertEquals(ParserActionType.REDUCE, action.getType());
-      assertEquals(productions.get(0), action.asReduce().getProduction());
+      assertEquals(ParserActionType.SHIFT, action.getType());
+      assertEquals(3, action.asShift().getNextState());
 
       action = parsingTable.getAction(3, tB);
-      assertEquals(ParserActionType.REDUCE, action.getType());
-      assertEquals(productions.get(0), action.asReduce().getProduction());
+      assertEquals(ParserActionType.SHIFT, action.getType());
+      assertEquals(4, action.asShift().getNextState());
 
       action = parsingTable.getAction(3, t$);
-      assertEquals(ParserActionType.REDUCE, action.getType());
-      assertEquals(productions.get(0), action.asReduce().getProduction());
+      assertNull(action);
 
       /* state 4 */
       action = parsingTable.getAction(4, tA);
-      assertEquals(ParserActionType.SHIFT, action.getType());
-      assertEquals(4, action.asShift().getNextState());
+      assertEquals(ParserActionType.REDUCE, action.getType());
+      assertEquals(productions.get(2), action.asReduce().getProduction());
 
       action = parsingTable.getAction(4, tB);
-      assertEquals(ParserActionType.SHIFT, action.getType());
-      assertEquals(6, action.asShift().getNextState());
+      assertEquals(ParserActionType.REDUCE, action.getType());
+      assertEquals(productions.get(2), action.asReduce().getProduction());
 
-      action = parsingTable.getAction(2, t$);
-      assertNull(action);
+      action = parsingTable.getAction(4, t$);
+      assertEquals(ParserActionType.REDUCE, action.getType());
+      assertEquals(productions.get(2), action.asReduce().getProduction());
 
       /* state 5 */
       action = parsingTable.getAction(5, tA);
       assertEquals(ParserActionType.REDUCE, action.getType());
-      assertEquals(productions.get(1), action.asReduce().getProduction());
+      assertEquals(productions.get(0), action.asReduce().getProduction());
 
       action = parsingTable.getAction(5, tB);
       assertEquals(ParserActionType.REDUCE, action.getType());
-      assertEquals(productions.get(1), action.asReduce().getProduction());
+      assertEquals(productions.get(0), action.asReduce().getProduction());
 
       action = parsingTable.getAction(5, t$);
       assertEquals(ParserActionType.REDUCE, action.getType());
-      assertEquals(productions.get(1), action.asReduce().getProduction());
+      assertEquals(productions.get(0), action.asReduce().getProduction());
 
       /* state 6 */
       action = parsingTable.getAction(6, tA);
       assertEquals(ParserActionType.REDUCE, action.getType());
-      assertEquals(productions.get(2), action.asReduce().getProduction());
+      assertEquals(productions.get(1), action.asReduce().getProduction());
 
       action = parsingTable.getAction(6, tB);
       assertEquals(ParserActionType.REDUCE, action.getType());
-      assertEquals(productions.get(2), action.asReduce().getProduction());
+      assertEquals(productions.get(1), action.asReduce().getProduction());
 
       action = parsingTable.getAction(6, t$);
       assertEquals(ParserActionType.REDUCE, action.getType());
-      assertEquals(productions.get(2), action.asReduce().getProduction());
+      assertEquals(productions.get(1), action.asReduce().getProduction());
 
       Parser<String> parser = new Parser<>(parsingTable);
 
@@ -153,4 +156,289 @@ public class ParserTest {
       parser.parse(tokens);
    }
 
+   @Test
+   public void testDefaultReductions() {
+      final Syntax syntax = new SimpleSyntax();
+
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A A"));
+      productions.add(syntax.parseProduction("A = a A"));
+      productions.add(syntax.parseProduction("A = b"));
+
+      Grammar grammar = new Grammar(syntax, productions);
+
+      LrZeroParsingTable generator = new LrZeroParsingTable();
+      generator.setDefaultReductions(true);
+
+      FooParsingTableBuilder tblb = new FooParsingTableBuilder();
+      generator.build(grammar, tblb);
+      // A = b. reduces on every terminal and end of input
+      assertEquals("[r2, r2, r2, r2, null, null]", Arrays.toString(tblb.tbl[4]));
+
+      ShortTableBuilder shortTblb = new ShortTableBuilder();
+      generator.build(grammar, shortTblb);
+      ParsingTable<String, Production> parsingTable = new FooParsingTable(grammar, shortTblb.getActionTable(),
+         shortTblb.getGotoTable());
+      new Parser<>(parsingTable).parse(Arrays.asList("a", "b", "b").iterator());
+   }
+
+   @Test
+   public void testCompressedParsingTable() {
+      final Syntax syntax = new SimpleSyntax();
+
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A A"));
+      productions.add(syntax.parseProduction("A = a A"));
+      productions.add(syntax.parseProduction("A = b"));
+
+      Grammar grammar = new Grammar(syntax, productions);
+
+      CompressedParsingTableBuilder tblb = new CompressedParsingTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+
+      Parser<String> parser = new Parser<>(tblb.getParsingTable(), token -> token.equals("a") ? 0 : 1);
+
+      // deep enough to grow the stacks
+      List<String> tokens = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+         tokens.add("a");
+      }
+      tokens.add("b");
+      tokens.add("b");
+      parser.parse(tokens.iterator());
+
+      // parsers are reusable
+      parser.parse(Arrays.asList("b", "a", "b").iterator());
+
+      try {
+         parser.parse(Arrays.asList("b", "b", "b").iterator());
+         fail();
+      }
+      catch (IllegalStateException e) {
+         assertEquals("Syntax error in state 1 on b", e.getMessage());
+      }
+   }
+
+   @Test
+   public void testReduceHandler() {
+      final Syntax syntax = new SimpleSyntax();
+
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("E = E plus T"));
+      productions.add(syntax.parseProduction("E = T"));
+      productions.add(syntax.parseProduction("T = T times F"));
+      productions.add(syntax.parseProduction("T = F"));
+      productions.add(syntax.parseProduction("F = lp E rp"));
+      productions.add(syntax.parseProduction("F = num"));
+
+      Grammar grammar = new Grammar(syntax, productions);
+
+      CompressedParsingTableBuilder tblb = new CompressedParsingTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+
+      final TerminalClassifier<CharSequence> names = TerminalClassifier.forNames(grammar);
+      final int num = names.getTerminal("num");
+      Parser<String> parser = new Parser<>(tblb.getParsingTable(),
+         token -> Character.isDigit(token.charAt(0)) ? num : names.getTerminal(token));
+
+      parser.setReduceHandler((production, values, offset, length) -> {
+         switch (production) {
+            case 0 :
+               return (Integer) values[offset] + (Integer) values[offset + 2];
+            case 2 :
+               return (Integer) values[offset] * (Integer) values[offset + 2];
+            case 4 :
+               return values[offset + 1];
+            case 5 :
+               return Integer.valueOf((String) values[offset]);
+            default :
+               assertEquals(1, length);
+               return values[offset];
+         }
+      });
+
+      assertEquals(14, parser.parse(Arrays.asList("2", "plus", "3", "times", "4").iterator()));
+      assertEquals(20, parser.parse(Arrays.asList("lp", "2", "plus", "3", "rp", "times", "4").iterator()));
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void testReduceHandlerRequiresPrimitiveTable() {
+      final Syntax syntax = new SimpleSyntax();
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = a"));
+      Grammar grammar = new Grammar(syntax, productions);
+
+      ShortTableBuilder tblb = new ShortTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+      Parser<String> parser = new Parser<>(new FooParsingTable(grammar, tblb.getActionTable(), tblb.getGotoTable()));
+      parser.setReduceHandler((production, values, offset, length) -> null);
+   }
+
+   @Test
+   public void testOffer() {
+      final Syntax syntax = new SimpleSyntax();
+
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A A"));
+      productions.add(syntax.parseProduction("A = a A"));
+      productions.add(syntax.parseProduction("A = b"));
+
+      Grammar grammar = new Grammar(syntax, productions);
+
+      CompressedParsingTableBuilder tblb = new CompressedParsingTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+
+      Parser<CharSequence> parser = new Parser<>(tblb.getParsingTable(), TerminalClassifier.forNames(grammar));
+      final List<Integer> reductions = new ArrayList<>();
+      parser.setReduceHandler((production, values, offset, length) -> {
+         reductions.add(production);
+         return null;
+      });
+
+      assertEquals(ParseStatus.NEED_MORE, parser.offer("a"));
+      assertEquals(ParseStatus.NEED_MORE, parser.offer("b"));
+      assertEquals(ParseStatus.NEED_MORE, parser.offer("b"));
+      assertEquals(ParseStatus.ACCEPTED, parser.offer(null));
+      assertEquals("[2, 1, 2, 0]", reductions.toString());
+
+      try {
+         parser.offer("a");
+         fail();
+      }
+      catch (IllegalStateException e) {
+         // must be reset first
+      }
+
+      parser.reset();
+      assertEquals(ParseStatus.NEED_MORE, parser.offer("b"));
+      assertEquals(ParseStatus.ERROR, parser.offer(null));
+      assertEquals(ParseStatus.ERROR, parser.getStatus());
+      assertEquals("Syntax error in state 2 on end of input", parser.getErrorMessage());
+
+      parser.reset();
+      assertEquals(ParseStatus.NEED_MORE, parser.offer("b"));
+      assertEquals(ParseStatus.NEED_MORE, parser.offer("b"));
+      assertEquals(ParseStatus.ACCEPTED, parser.offer(null));
+   }
+
+   @Test
+   public void testParseTerminalArray() {
+      final Syntax syntax = new SimpleSyntax();
+
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("L = L comma num"));
+      productions.add(syntax.parseProduction("L = num"));
+
+      Grammar grammar = new Grammar(syntax, productions);
+
+      CompressedParsingTableBuilder tblb = new CompressedParsingTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+
+      Parser<Object> parser = new Parser<>(tblb.getParsingTable(), token -> TerminalClassifier.NONE);
+      parser.setReduceHandler((production, values, offset, length) -> {
+         int sum = (Integer) values[offset + length - 1];
+         return production == 0 ? (Integer) values[offset] + sum : sum;
+      });
+
+      // comma = 0, num = 1
+      int[] terminals = { -1, 1, 0, 1, 0, 1, -1 };
+      Object[] values = { null, 1, null, 2, null, 3, null };
+      assertEquals(6, parser.parse(terminals, values, 1, 5));
+      assertEquals(3, parser.parse(terminals, values, 1, 3));
+
+      try {
+         parser.parse(terminals, values, 1, 4);
+         fail();
+      }
+      catch (IllegalStateException e) {
+         assertEquals(ParseStatus.ERROR, parser.getStatus());
+         assertTrue(e.getMessage().endsWith("on end of input"));
+      }
+      try {
+         parser.parse(terminals, values, 0, 2);
+         fail();
+      }
+      catch (IllegalStateException e) {
+         assertTrue(e.getMessage().endsWith("on terminal -1 at 0"));
+      }
+
+      // without values
+      parser.setReduceHandler(null);
+      assertNull(parser.parse(new int[] { 1, 0, 1 }, 0, 3));
+   }
+
+   @Test
+   public void testErrorRecovery() {
+      final Syntax syntax = new SimpleSyntax();
+
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("L = L comma num"));
+      productions.add(syntax.parseProduction("L = num"));
+
+      Grammar grammar = new Grammar(syntax, productions);
+
+      CompressedParsingTableBuilder tblb = new CompressedParsingTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+
+      Parser<Object> parser = new Parser<>(tblb.getParsingTable(), token -> TerminalClassifier.NONE);
+      parser.setMaxErrors(2);
+
+      // comma = 0, num = 1, missing comma
+      parser.parse(new int[] { 1, 1 }, 0, 2);
+      assertEquals(ParseStatus.ACCEPTED, parser.getStatus());
+      assertEquals(1, parser.getErrors().size());
+      ParseError error = parser.getErrors().get(0);
+      assertEquals(1, error.getPosition());
+      assertEquals(1, error.getTerminal());
+      assertEquals(ParseError.Repair.INSERT, error.getRepair());
+      assertEquals(0, error.getInsertedTerminal());
+
+      // unknown terminal
+      parser.parse(new int[] { 1, 7, 0, 1 }, 0, 4);
+      assertEquals(1, parser.getErrors().size());
+      error = parser.getErrors().get(0);
+      assertEquals(1, error.getPosition());
+      assertEquals(ParseError.Repair.DELETE, error.getRepair());
+
+      // missing num at the beginning and at the end
+      parser.parse(new int[] { 0 }, 0, 1);
+      assertEquals(2, parser.getErrors().size());
+      assertEquals(ParseError.Repair.INSERT, parser.getErrors().get(0).getRepair());
+      assertEquals(1, parser.getErrors().get(0).getInsertedTerminal());
+      assertEquals(1, parser.getErrors().get(1).getPosition());
+      assertEquals(1, parser.getErrors().get(1).getInsertedTerminal());
+
+      try {
+         parser.parse(new int[] { 0, 0, 0 }, 0, 3);
+         fail();
+      }
+      catch (IllegalStateException e) {
+         assertEquals(ParseStatus.ERROR, parser.getStatus());
+         assertEquals(3, parser.getErrors().size());
+         assertEquals(ParseError.Repair.NONE, parser.getErrors().get(2).getRepair());
+      }
+
+      parser.setMaxErrors(0);
+      try {
+         parser.parse(new int[] { 1, 1 }, 0, 2);
+         fail();
+      }
+      catch (IllegalStateException e) {
+         assertEquals("Syntax error in state " + parser.getErrors().get(0).getState() + " on terminal 1 at 1",
+            e.getMessage());
+      }
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void testErrorRecoveryRequiresPrimitiveTable() {
+      final Syntax syntax = new SimpleSyntax();
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = a"));
+      Grammar grammar = new Grammar(syntax, productions);
+
+      ShortTableBuilder tblb = new ShortTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+      Parser<String> parser = new Parser<>(new FooParsingTable(grammar, tblb.getActionTable(), tblb.getGotoTable()));
+      parser.setMaxErrors(1);
+   }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.SimpleSyntax;
+import org.sourcepit.lalr.core.grammar.Syntax;
+import org.sourcepit.lalr.core.grammar.Terminal;
+import org.sourcepit.lalr.core.lr.lalr.LalrParsingTable;
+
+public class PrimitiveParsingTableAdapterTest {
+
+   @Test
+   public void testActions() {
+      final Syntax syntax = new SimpleSyntax();
+
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A A"));
+      productions.add(syntax.parseProduction("A = a A"));
+      productions.add(syntax.parseProduction("A = b"));
+
+      Grammar grammar = new Grammar(syntax, productions);
+
+      CompressedParsingTableBuilder tblb = new CompressedParsingTableBuilder();
+      tblb.setDefaultReductions(false);
+      new LalrParsingTable().build(grammar, tblb);
+      CompressedParsingTable table = tblb.getParsingTable();
+
+      PrimitiveParsingTableAdapter adapter = new PrimitiveParsingTableAdapter(grammar, table);
+
+      Terminal a = grammar.getTerminals().get(0);
+      Terminal b = grammar.getTerminals().get(1);
+
+      AbstractParserAction<Production> action = adapter.getAction(0, b);
+      assertEquals(ParserActionType.SHIFT, action.getType());
+      int afterB = action.asShift().getNextState();
+      assertEquals(PrimitiveParsingTable.SHIFT | afterB, table.getAction(0, 1));
+      // action objects are shared
+      assertSame(action, adapter.getAction(0, b));
+
+      assertNull(adapter.getAction(0, null));
+
+      action = adapter.getAction(afterB, a);
+      assertEquals(ParserActionType.REDUCE, action.getType());
+      assertSame(productions.get(2), action.asReduce().getProduction());
+
+      int afterA = adapter.getGoto(0, productions.get(2));
+      assertEquals(table.getGoto(0, grammar.indexOf(grammar.getVariable("A"))), afterA);
+
+      new Parser<>(adapter).parse(Arrays.asList(a, b, b).iterator());
+   }
+}
@@ -16,17 +16,13 @@
 
 package org.sourcepit.lalr.core.lr;
 
-import java.util.List;
-
 import org.apache.commons.lang.Validate;
 import org.sourcepit.lalr.core.grammar.Grammar;
 import org.sourcepit.lalr.core.grammar.Terminal;
 import org.sourcepit.lalr.core.grammar.Variable;
 
 public class ShortTableBuilder implements ParsingTableBuilder {
-   private List<Terminal> terminals;
-
-   private List<Variable> variables;
+   private Grammar grammar;
 
    private int actionTableSize, gotoTableSize;
 
@@ -34,6 +30,8 @@ public class ShortTableBuilder implements ParsingTableBuilder {
 
    private short[] actionRow, gotoRow;
 
+   private int defaultProduction;
+
    public short[][] getActionTable() {
       return actionTable;
    }
@@ -44,13 +42,13 @@ public class ShortTableBuilder implements ParsingTableBuilder {
 
    private int indexOf(Terminal terminal) {
       if (terminal == null) {
-         return terminals.size(); // return idx eof
+         return grammar.getTerminals().size(); // return idx eof
       }
-      return terminals.indexOf(terminal);
+      return grammar.indexOf(terminal);
    }
 
    private int indexOf(Variable variable) {
-      return variables.indexOf(variable);
+      return grammar.indexOf(variable);
    }
 
    static short merge(short action, int data) {
@@ -60,10 +58,9 @@ public class ShortTableBuilder implements ParsingTableBuilder {
 
    @Override
    public void startTable(Grammar grammar, int states) {
-      terminals = grammar.getTerminals();
-      actionTableSize = terminals.size() + 1;
-      variables = grammar.getVariables();
-      gotoTableSize = variables.size();
+      this.grammar = grammar;
+      actionTableSize = grammar.getTerminals().size() + 1;
+      gotoTableSize = grammar.getVariables().size();
       actionTable = new short[states][];
       gotoTable = new short[states][];
    }
@@ -74,6 +71,7 @@ public class ShortTableBuilder implements ParsingTableBuilder {
       actionTable[state] = actionRow;
       gotoRow = new short[gotoTableSize];
       gotoTable[state] = gotoRow;
+      defaultProduction = -1;
    }
 
    @Override
@@ -94,6 +92,11 @@ public class ShortTableBuilder implements ParsingTableBuilder {
       }
    }
 
+   @Override
+   public void defaultReduce(int production) {
+      defaultProduction = production;
+   }
+
    @Override
    public void jump(Variable variable, int targetState) {
       gotoRow[indexOf(variable)] = (short) targetState;
@@ -101,6 +104,13 @@ public class ShortTableBuilder implements ParsingTableBuilder {
 
    @Override
    public void endState(int state) {
+      if (defaultProduction > -1) {
+         for (int i = 0; i < actionRow.length; i++) {
+            if (actionRow[i] == 0) {
+               actionRow[i] = merge(ParsingTableTest.ACTION_REDUCE, defaultProduction);
+            }
+         }
+      }
 
    }
 
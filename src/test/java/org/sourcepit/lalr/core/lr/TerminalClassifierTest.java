@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.SimpleSyntax;
+import org.sourcepit.lalr.core.grammar.Syntax;
+import org.sourcepit.lalr.core.lr.lalr.LalrParsingTable;
+
+public class TerminalClassifierTest {
+
+   private enum Token {
+      b, a, unknown
+   }
+
+   private final Syntax syntax = new SimpleSyntax();
+
+   private Grammar newGrammar() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A A"));
+      productions.add(syntax.parseProduction("A = a A"));
+      productions.add(syntax.parseProduction("A = b"));
+      return new Grammar(syntax, productions);
+   }
+
+   @Test
+   public void testNames() {
+      List<Production> productions = new ArrayList<>();
+      StringBuilder sb = new StringBuilder("S =");
+      for (int i = 0; i < 500; i++) {
+         sb.append(" t").append(i);
+      }
+      productions.add(syntax.parseProduction(sb.toString()));
+      Grammar grammar = new Grammar(syntax, productions);
+
+      PerfectHashTerminalClassifier classifier = new PerfectHashTerminalClassifier(grammar);
+      for (int i = 0; i < 500; i++) {
+         assertEquals(i, classifier.getTerminal("t" + i));
+         assertEquals(i, classifier.getTerminal(new StringBuilder("t").append(i)));
+      }
+      assertEquals(TerminalClassifier.NONE, classifier.getTerminal("t500"));
+      assertEquals(TerminalClassifier.NONE, classifier.getTerminal(""));
+      assertEquals(1024, classifier.getTableSize());
+   }
+
+   @Test
+   public void testPerfectHashWithCollidingNames() {
+      // both names have the same 32 bit FNV-1a hash
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = glbvs yacxa"));
+      Grammar grammar = new Grammar(syntax, productions);
+
+      PerfectHashTerminalClassifier classifier = new PerfectHashTerminalClassifier(grammar);
+      assertEquals(grammar.indexOf(syntax.createTerminal("glbvs")), classifier.getTerminal("glbvs"));
+      assertEquals(grammar.indexOf(syntax.createTerminal("yacxa")), classifier.getTerminal("yacxa"));
+      assertEquals(TerminalClassifier.NONE, classifier.getTerminal("glbvt"));
+   }
+
+   @Test
+   public void testEnum() {
+      Grammar grammar = newGrammar();
+      TerminalClassifier<Token> classifier = TerminalClassifier.forEnum(Token.class, grammar);
+      assertEquals(0, classifier.getTerminal(Token.a));
+      assertEquals(1, classifier.getTerminal(Token.b));
+      assertEquals(TerminalClassifier.NONE, classifier.getTerminal(Token.unknown));
+
+      CompressedParsingTableBuilder tblb = new CompressedParsingTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+      new Parser<>(tblb.getParsingTable(), classifier).parse(Arrays.asList(Token.a, Token.b, Token.b).iterator());
+   }
+
+   @Test
+   public void testKinds() {
+      TerminalClassifier<Integer> classifier = TerminalClassifier.forKinds(Integer::intValue, new int[] { 1, 0 });
+      assertEquals(1, classifier.getTerminal(0));
+      assertEquals(0, classifier.getTerminal(1));
+      assertEquals(TerminalClassifier.NONE, classifier.getTerminal(2));
+      assertEquals(TerminalClassifier.NONE, classifier.getTerminal(-1));
+   }
+
+   @Test
+   public void testUnknownToken() {
+      Grammar grammar = newGrammar();
+      CompressedParsingTableBuilder tblb = new CompressedParsingTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+      Parser<CharSequence> parser = new Parser<>(tblb.getParsingTable(), TerminalClassifier.forNames(grammar));
+      parser.parse(Arrays.<CharSequence> asList("a", "b", "b").iterator());
+      try {
+         parser.parse(Arrays.<CharSequence> asList("a", "c").iterator());
+         fail();
+      }
+      catch (IllegalStateException e) {
+         assertTrue(e.getMessage().endsWith("on c"));
+      }
+   }
+}
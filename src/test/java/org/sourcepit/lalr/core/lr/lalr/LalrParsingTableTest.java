@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr.lalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.SimpleSyntax;
+import org.sourcepit.lalr.core.grammar.Syntax;
+import org.sourcepit.lalr.core.grammar.Terminal;
+import org.sourcepit.lalr.core.grammar.TerminalSet;
+import org.sourcepit.lalr.core.grammar.Variable;
+import org.sourcepit.lalr.core.lr.FooParsingTable;
+import org.sourcepit.lalr.core.lr.LrStateGraph;
+import org.sourcepit.lalr.core.lr.Parser;
+import org.sourcepit.lalr.core.lr.ParsingTableBuilder;
+import org.sourcepit.lalr.core.lr.ShortTableBuilder;
+import org.sourcepit.lalr.core.lr.zero.LrZeroItem;
+import org.sourcepit.lalr.core.lr.zero.LrZeroStateGraphFactory;
+
+public class LalrParsingTableTest {
+
+   private final Syntax syntax = new SimpleSyntax();
+
+   /**
+    * Records all actions per state and column, so conflicts show up as cells with more than one action.
+    */
+   static class RecordingTableBuilder implements ParsingTableBuilder {
+      final List<Map<String, List<String>>> actions = new ArrayList<>();
+
+      @Override
+      public void startTable(Grammar grammar, int states) {
+      }
+
+      @Override
+      public void startState(int state) {
+         actions.add(new LinkedHashMap<>());
+      }
+
+      @Override
+      public void shift(Terminal terminal, int targetState) {
+         add(String.valueOf(terminal), "s" + targetState);
+      }
+
+      @Override
+      public void reduce(Terminal terminal, int production) {
+         add(String.valueOf(terminal), production < 0 ? "acc" : "r" + production);
+      }
+
+      @Override
+      public void defaultReduce(int production) {
+         add("default", "r" + production);
+      }
+
+      @Override
+      public void jump(Variable variable, int targetState) {
+         add(variable.toString(), "g" + targetState);
+      }
+
+      private void add(String column, String action) {
+         actions.get(actions.size() - 1).computeIfAbsent(column, k -> new ArrayList<>()).add(action);
+      }
+
+      @Override
+      public void endState(int state) {
+      }
+
+      @Override
+      public void endTable(Grammar grammar, int states) {
+      }
+
+      boolean hasConflicts() {
+         for (Map<String, List<String>> row : actions) {
+            for (List<String> cell : row.values()) {
+               if (cell.size() > 1) {
+                  return true;
+               }
+            }
+         }
+         return false;
+      }
+   }
+
+   @Test
+   public void testNotSlr() {
+      // the classic grammar that is LALR(1) but not SLR(1)
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = L eq R"));
+      productions.add(syntax.parseProduction("S = R"));
+      productions.add(syntax.parseProduction("L = st R"));
+      productions.add(syntax.parseProduction("L = id"));
+      productions.add(syntax.parseProduction("R = L"));
+      Grammar grammar = new Grammar(syntax, productions);
+
+      RecordingTableBuilder tblb = new RecordingTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+      assertTrue(!tblb.hasConflicts());
+
+      LrStateGraph<LrZeroItem> stateGraph = new LrZeroStateGraphFactory().createStateGraph(grammar);
+      List<Map<Integer, TerminalSet>> lookaheads = new LalrParsingTable().computeLookaheads(grammar, stateGraph);
+
+      // state after L: S = L .eq R and R = L. must reduce on end of input only
+      int afterL = stateGraph.getTransitions().get(0).get(grammar.getVariable("L"));
+      assertEquals("[$]", lookaheads.get(afterL).get(4).toString());
+      assertEquals("[acc]", tblb.actions.get(stateGraph.getTransitions().get(0).get(grammar.getVariable("S")))
+         .get("null").toString());
+
+      // R = L. after st or eq reduces on eq and end of input
+      int afterSt = stateGraph.getTransitions().get(0).get(grammar.getTerminals().get(1));
+      int afterStL = stateGraph.getTransitions().get(afterSt).get(grammar.getVariable("L"));
+      assertEquals("[eq, $]", lookaheads.get(afterStL).get(4).toString());
+   }
+
+   @Test
+   public void testNullable() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A B c"));
+      productions.add(syntax.parseProduction("A = a"));
+      productions.add(syntax.parseProduction("A = "));
+      productions.add(syntax.parseProduction("B = b"));
+      productions.add(syntax.parseProduction("B = "));
+      Grammar grammar = new Grammar(syntax, productions);
+
+      LrStateGraph<LrZeroItem> stateGraph = new LrZeroStateGraphFactory().createStateGraph(grammar);
+      List<Map<Integer, TerminalSet>> lookaheads = new LalrParsingTable().computeLookaheads(grammar, stateGraph);
+
+      // in the start state A = . reads b and, through the nullable B, c
+      assertEquals("[c, b]", lookaheads.get(0).get(2).toString());
+
+      RecordingTableBuilder tblb = new RecordingTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+      assertTrue(!tblb.hasConflicts());
+   }
+
+   @Test
+   public void testParse() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A A"));
+      productions.add(syntax.parseProduction("A = a A"));
+      productions.add(syntax.parseProduction("A = b"));
+      Grammar grammar = new Grammar(syntax, productions);
+
+      ShortTableBuilder tblb = new ShortTableBuilder();
+      new LalrParsingTable().build(grammar, tblb);
+
+      FooParsingTable parsingTable = new FooParsingTable(grammar, tblb.getActionTable(), tblb.getGotoTable());
+      new Parser<>(parsingTable).parse(Arrays.asList("a", "b", "b").iterator());
+   }
+}
@@ -81,7 +81,7 @@ public class LrOneClosureFunctionTest {
 
       // S = .A, $
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pS, 0, eof));
+      inputItems.add(LrOneItem.create(grammar, pS, 0, eof));
       closure = cf.apply(graph, inputItems);
       assertEquals("[S = .A, [$], A = ., [$], A = .a, [$]]", closure.toString());
    }
@@ -121,55 +121,55 @@ public class LrOneClosureFunctionTest {
 
       // START = .S, $
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pStart, 0, eof));
+      inputItems.add(LrOneItem.create(grammar, pStart, 0, eof));
       closure = cf.apply(graph, inputItems);
       assertEquals("[START = .S, [$], S = .A A, [$], A = .b, [a, b], A = .a A, [a, b]]", closure.toString());
 
       // START = S., $
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pStart, 1, eof));
+      inputItems.add(LrOneItem.create(grammar, pStart, 1, eof));
       closure = cf.apply(graph, inputItems);
       assertEquals("[START = S., [$]]", closure.toString());
 
       // S = A .A, $
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pS, 1, eof));
+      inputItems.add(LrOneItem.create(grammar, pS, 1, eof));
       closure = cf.apply(graph, inputItems);
       assertEquals("[S = A .A, [$], A = .b, [$], A = .a A, [$]]", closure.toString());
 
       // S = A A., $
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pS, 2, eof));
+      inputItems.add(LrOneItem.create(grammar, pS, 2, eof));
       closure = cf.apply(graph, inputItems);
       assertEquals("[S = A A., [$]]", closure.toString());
 
       // A = a .A, $
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pA1, 1, eof));
+      inputItems.add(LrOneItem.create(grammar, pA1, 1, eof));
       closure = cf.apply(graph, inputItems);
       assertEquals("[A = a .A, [$], A = .b, [$], A = .a A, [$]]", closure.toString());
 
       // A = a .A, a, b
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pA1, 1, tA, tB));
+      inputItems.add(LrOneItem.create(grammar, pA1, 1, tA, tB));
       closure = cf.apply(graph, inputItems);
       assertEquals("[A = a .A, [a, b], A = .b, [a, b], A = .a A, [a, b]]", closure.toString());
 
       // A = a A., a, b
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pA1, 2, tA, tB));
+      inputItems.add(LrOneItem.create(grammar, pA1, 2, tA, tB));
       closure = cf.apply(graph, inputItems);
       assertEquals("[A = a A., [a, b]]", closure.toString());
 
       // A = b., $
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pA2, 1, eof));
+      inputItems.add(LrOneItem.create(grammar, pA2, 1, eof));
       closure = cf.apply(graph, inputItems);
       assertEquals("[A = b., [$]]", closure.toString());
 
       // A = b., a, b
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pA2, 1, tA, tB));
+      inputItems.add(LrOneItem.create(grammar, pA2, 1, tA, tB));
       closure = cf.apply(graph, inputItems);
       assertEquals("[A = b., [a, b]]", closure.toString());
    }
@@ -210,8 +210,8 @@ public class LrOneClosureFunctionTest {
       final Terminal eof = syntax.getEofTerminal();
 
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pS1, 0, eof));
-      inputItems.add(LrOneItem.create(pS2, 0, eof));
+      inputItems.add(LrOneItem.create(grammar, pS1, 0, eof));
+      inputItems.add(LrOneItem.create(grammar, pS2, 0, eof));
       closure = cf.apply(graph, inputItems);
       assertEquals("[S = .A b, [$], S = .A c, [$], A = .a, [b, c]]", closure.toString());
    }
@@ -269,11 +269,11 @@ public class LrOneClosureFunctionTest {
       final Terminal eof = syntax.getEofTerminal();
 
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pS1, 0, eof));
-      inputItems.add(LrOneItem.create(pS2, 0, eof));
+      inputItems.add(LrOneItem.create(grammar, pS1, 0, eof));
+      inputItems.add(LrOneItem.create(grammar, pS2, 0, eof));
       closure = cf.apply(graph, inputItems);
       assertEquals(
-         "[S = .A, [$], S = .A s, [$], A = .B d, [$, s], A = .B c, [$, s], A = .a, [$, s], A = .B, [$, s], B = .b, [$, s, c, d]]",
+         "[S = .A, [$], S = .A s, [$], A = .B d, [s, $], A = .B c, [s, $], A = .a, [s, $], A = .B, [s, $], B = .b, [s, c, d, $]]",
          closure.toString());
 
    }
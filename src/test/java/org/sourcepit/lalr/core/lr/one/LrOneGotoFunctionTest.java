@@ -90,7 +90,7 @@ public class LrOneGotoFunctionTest {
 
       // S = .A, $
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pS, 0, eof));
+      inputItems.add(LrOneItem.create(grammar, pS, 0, eof));
       
       BiFunction<GrammarGraph, Set<LrOneItem>, Set<LrOneItem>> closureFunction = gotoFunction.getClosureFunction();
       
@@ -141,7 +141,7 @@ public class LrOneGotoFunctionTest {
 
       // START = .S, $
       inputItems = new LinkedHashSet<>();
-      inputItems.add(LrOneItem.create(pStart, 0, syntax.getEofTerminal()));
+      inputItems.add(LrOneItem.create(grammar, pStart, 0, syntax.getEofTerminal()));
 
 
       List<Set<LrOneItem>> states = new ArrayList<>();
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr.one;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.SimpleSyntax;
+import org.sourcepit.lalr.core.grammar.Syntax;
+import org.sourcepit.lalr.core.grammar.Terminal;
+import org.sourcepit.lalr.core.grammar.Variable;
+import org.sourcepit.lalr.core.grammar.graph.DetermineFollowGrammarGraphVisitor;
+import org.sourcepit.lalr.core.grammar.graph.DetermineNullableGrammarGraphVisitor;
+import org.sourcepit.lalr.core.grammar.graph.FirstFollowSolver;
+import org.sourcepit.lalr.core.grammar.graph.GrammarGraph;
+import org.sourcepit.lalr.core.lr.LrStateGraph;
+import org.sourcepit.lalr.core.lr.ParsingTableBuilder;
+import org.sourcepit.lalr.core.lr.ShortTableBuilder;
+import org.sourcepit.lalr.core.lr.lalr.LalrParsingTable;
+import org.sourcepit.lalr.core.lr.one.LrOneStateGraphFactory.MergeMode;
+
+public class LrOneParsingTableTest {
+
+   private final Syntax syntax = new SimpleSyntax();
+
+   /**
+    * Counts states and cells with more than one action.
+    */
+   static class ConflictCountingTableBuilder implements ParsingTableBuilder {
+      int states;
+      int conflicts;
+      private final Set<String> cells = new HashSet<>();
+
+      @Override
+      public void startTable(Grammar grammar, int states) {
+         this.states = states;
+      }
+
+      @Override
+      public void startState(int state) {
+         cells.clear();
+      }
+
+      @Override
+      public void shift(Terminal terminal, int targetState) {
+         add(String.valueOf(terminal));
+      }
+
+      @Override
+      public void reduce(Terminal terminal, int production) {
+         add(String.valueOf(terminal));
+      }
+
+      @Override
+      public void defaultReduce(int production) {
+         add("default");
+      }
+
+      @Override
+      public void jump(Variable variable, int targetState) {
+      }
+
+      private void add(String column) {
+         if (!cells.add(column)) {
+            conflicts++;
+         }
+      }
+
+      @Override
+      public void endState(int state) {
+      }
+
+      @Override
+      public void endTable(Grammar grammar, int states) {
+      }
+   }
+
+   private GrammarGraph newGrammarGraph(List<Production> productions) {
+      final GrammarGraph graph = new GrammarGraph(new Grammar(syntax, productions));
+      graph.accept(new DetermineNullableGrammarGraphVisitor());
+      final DetermineFollowGrammarGraphVisitor firstAndFollow = new DetermineFollowGrammarGraphVisitor();
+      graph.accept(firstAndFollow);
+      for (Entry<Variable, Set<Terminal>> entry : firstAndFollow.getSymbolToFirst().entrySet()) {
+         graph.getVariableNode(entry.getKey()).setFirstSet(entry.getValue());
+      }
+      return graph;
+   }
+
+   private List<Production> newLrOneButNotLalrProductions() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = a A d"));
+      productions.add(syntax.parseProduction("S = b B d"));
+      productions.add(syntax.parseProduction("S = a B e"));
+      productions.add(syntax.parseProduction("S = b A e"));
+      productions.add(syntax.parseProduction("A = c"));
+      productions.add(syntax.parseProduction("B = c"));
+      return productions;
+   }
+
+   private List<Production> newLalrProductions() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A A"));
+      productions.add(syntax.parseProduction("A = a A"));
+      productions.add(syntax.parseProduction("A = b"));
+      return productions;
+   }
+
+   @Test
+   public void testCanonical() {
+      ConflictCountingTableBuilder tblb = new ConflictCountingTableBuilder();
+      new LrOneParsingTable().build(newGrammarGraph(newLalrProductions()), tblb);
+      assertEquals(10, tblb.states);
+      assertEquals(0, tblb.conflicts);
+
+      tblb = new ConflictCountingTableBuilder();
+      new LrOneParsingTable().build(newGrammarGraph(newLrOneButNotLalrProductions()), tblb);
+      assertEquals(0, tblb.conflicts);
+   }
+
+   @Test
+   public void testLalr() {
+      GrammarGraph graph = newGrammarGraph(newLalrProductions());
+
+      ConflictCountingTableBuilder lalr = new ConflictCountingTableBuilder();
+      new LalrParsingTable().build(graph.getGrammar(), lalr);
+
+      ConflictCountingTableBuilder tblb = new ConflictCountingTableBuilder();
+      new LrOneParsingTable(MergeMode.LALR).build(graph, tblb);
+      assertEquals(lalr.states, tblb.states);
+      assertEquals(0, tblb.conflicts);
+
+      tblb = new ConflictCountingTableBuilder();
+      new LrOneParsingTable(MergeMode.LALR).build(newGrammarGraph(newLrOneButNotLalrProductions()), tblb);
+      assertTrue(tblb.conflicts > 0);
+   }
+
+   @Test
+   public void testConflictAvoiding() {
+      GrammarGraph graph = newGrammarGraph(newLrOneButNotLalrProductions());
+
+      ConflictCountingTableBuilder canonical = new ConflictCountingTableBuilder();
+      new LrOneParsingTable().build(graph, canonical);
+
+      ConflictCountingTableBuilder tblb = new ConflictCountingTableBuilder();
+      new LrOneParsingTable(MergeMode.CONFLICT_AVOIDING).build(graph, tblb);
+      assertEquals(0, tblb.conflicts);
+      assertTrue(tblb.states <= canonical.states);
+
+      // without conflicts all same-core states are merged
+      ConflictCountingTableBuilder lalr = new ConflictCountingTableBuilder();
+      new LrOneParsingTable(MergeMode.LALR).build(newGrammarGraph(newLalrProductions()), lalr);
+      tblb = new ConflictCountingTableBuilder();
+      new LrOneParsingTable(MergeMode.CONFLICT_AVOIDING).build(newGrammarGraph(newLalrProductions()), tblb);
+      assertEquals(lalr.states, tblb.states);
+      assertFalse(tblb.conflicts > 0);
+   }
+
+   @Test
+   public void testConflictAvoidingPropagatedConflict() {
+      // merging the states after "a e" and "b e" has no conflict itself, but the successors on X have
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = a E a"));
+      productions.add(syntax.parseProduction("S = b E b"));
+      productions.add(syntax.parseProduction("S = a F b"));
+      productions.add(syntax.parseProduction("S = b F a"));
+      productions.add(syntax.parseProduction("E = e X"));
+      productions.add(syntax.parseProduction("F = e X"));
+      productions.add(syntax.parseProduction("X = x"));
+      GrammarGraph graph = newGrammarGraph(productions);
+
+      ConflictCountingTableBuilder lalr = new ConflictCountingTableBuilder();
+      new LrOneParsingTable(MergeMode.LALR).build(graph, lalr);
+      assertTrue(lalr.conflicts > 0);
+
+      ConflictCountingTableBuilder canonical = new ConflictCountingTableBuilder();
+      new LrOneParsingTable().build(graph, canonical);
+
+      ConflictCountingTableBuilder tblb = new ConflictCountingTableBuilder();
+      new LrOneParsingTable(MergeMode.CONFLICT_AVOIDING).build(graph, tblb);
+      assertEquals(0, tblb.conflicts);
+      assertEquals(canonical.states, tblb.states);
+   }
+
+   private List<Production> newRecursiveProductions() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = l L r"));
+      productions.add(syntax.parseProduction("S = i"));
+      productions.add(syntax.parseProduction("L = S"));
+      productions.add(syntax.parseProduction("L = S c L"));
+      return productions;
+   }
+
+   @Test(timeout = 10000)
+   public void testLalrRecursive() {
+      GrammarGraph graph = new GrammarGraph(new Grammar(syntax, newRecursiveProductions()));
+      FirstFollowSolver.solve(graph);
+
+      ConflictCountingTableBuilder lalr = new ConflictCountingTableBuilder();
+      new LalrParsingTable().build(graph.getGrammar(), lalr);
+
+      for (MergeMode mergeMode : new MergeMode[] { MergeMode.LALR, MergeMode.CONFLICT_AVOIDING }) {
+         LrOneStateGraphFactory factory = new LrOneStateGraphFactory(mergeMode);
+         assertEquals(lalr.states, factory.createStateGraph(graph).getStates().size());
+         factory.setKernelOnly(true);
+         assertEquals(lalr.states, factory.createStateGraph(graph).getStates().size());
+
+         ConflictCountingTableBuilder tblb = new ConflictCountingTableBuilder();
+         new LrOneParsingTable(mergeMode).build(graph, tblb);
+         assertEquals(lalr.states, tblb.states);
+         assertEquals(0, tblb.conflicts);
+      }
+   }
+
+   @Test(timeout = 10000)
+   public void testPagerRecursive() {
+      GrammarGraph graph = new GrammarGraph(new Grammar(syntax, newRecursiveProductions()));
+      FirstFollowSolver.solve(graph);
+
+      ConflictCountingTableBuilder canonical = new ConflictCountingTableBuilder();
+      new LrOneParsingTable().build(graph, canonical);
+      assertEquals(0, canonical.conflicts);
+
+      LrOneStateGraphFactory factory = new LrOneStateGraphFactory(MergeMode.PAGER);
+      LrStateGraph<LrOneItem> stateGraph = factory.createStateGraph(graph);
+      assertEquals(9, stateGraph.getStates().size());
+      assertTrue(stateGraph.getStates().size() < canonical.states);
+
+      ConflictCountingTableBuilder tblb = new ConflictCountingTableBuilder();
+      new LrOneParsingTable().build(graph.getGrammar(), stateGraph, tblb);
+      assertEquals(0, tblb.conflicts);
+
+      factory.setKernelOnly(true);
+      assertEquals(9, factory.createStateGraph(graph).getStates().size());
+   }
+
+   @Test
+   public void testPager() {
+      GrammarGraph graph = newGrammarGraph(newLrOneButNotLalrProductions());
+
+      LrOneStateGraphFactory factory = new LrOneStateGraphFactory(MergeMode.PAGER);
+      LrStateGraph<LrOneItem> stateGraph = factory.createStateGraph(graph);
+      assertTrue(stateGraph.getRefusedMergeCount() > 0);
+
+      ConflictCountingTableBuilder tblb = new ConflictCountingTableBuilder();
+      new LrOneParsingTable().build(graph.getGrammar(), stateGraph, tblb);
+      assertEquals(0, tblb.conflicts);
+
+      // LALR(1) grammars get the LALR(1) automaton
+      graph = newGrammarGraph(newLalrProductions());
+      stateGraph = factory.createStateGraph(graph);
+      assertEquals(7, stateGraph.getStates().size());
+      assertTrue(stateGraph.getMergeCount() > 0);
+      assertEquals(0, stateGraph.getRefusedMergeCount());
+
+      factory.setKernelOnly(true);
+      assertEquals(7, factory.createStateGraph(graph).getStates().size());
+   }
+
+   @Test
+   public void testParallelTablesAreIdentical() {
+      List<Production> productions = newLrOneButNotLalrProductions();
+      productions.add(syntax.parseProduction("S = S c"));
+      assertParallelTablesAreIdentical(newGrammarGraph(productions));
+   }
+
+   @Test(timeout = 10000)
+   public void testParallelTablesAreIdenticalRecursive() {
+      GrammarGraph graph = new GrammarGraph(new Grammar(syntax, newRecursiveProductions()));
+      FirstFollowSolver.solve(graph);
+      assertParallelTablesAreIdentical(graph);
+   }
+
+   private static void assertParallelTablesAreIdentical(GrammarGraph graph) {
+      final ForkJoinPool pool = new ForkJoinPool(4);
+      try {
+         for (MergeMode mergeMode : MergeMode.values()) {
+            LrOneStateGraphFactory factory = new LrOneStateGraphFactory(mergeMode);
+            ShortTableBuilder sequential = new ShortTableBuilder();
+            new LrOneParsingTable().build(graph.getGrammar(), factory.createStateGraph(graph), sequential);
+
+            factory.setPool(pool);
+            ShortTableBuilder parallel = new ShortTableBuilder();
+            new LrOneParsingTable().build(graph.getGrammar(), factory.createStateGraph(graph), parallel);
+
+            assertTrue(mergeMode.name(), Arrays.deepEquals(sequential.getActionTable(), parallel.getActionTable()));
+            assertTrue(mergeMode.name(), Arrays.deepEquals(sequential.getGotoTable(), parallel.getGotoTable()));
+         }
+      }
+      finally {
+         pool.shutdown();
+      }
+   }
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 import org.sourcepit.lalr.core.grammar.AbstractSymbol;
@@ -38,6 +39,7 @@ import org.sourcepit.lalr.core.grammar.graph.DetermineFollowGrammarGraphVisitor;
 import org.sourcepit.lalr.core.grammar.graph.DetermineNullableGrammarGraphVisitor;
 import org.sourcepit.lalr.core.grammar.graph.GrammarGraph;
 import org.sourcepit.lalr.core.lr.LrStateGraph;
+import org.sourcepit.lalr.core.lr.one.LrOneStateGraphFactory.MergeMode;
 
 public class LrOneStateGraphFactoryTest {
    private final Syntax syntax = new SimpleSyntax();
@@ -97,6 +99,42 @@ public class LrOneStateGraphFactoryTest {
 
       LrStateGraph<LrOneItem> stateGraph = stateGraphFactory.createStateGraph(grammarGraph);
       assertEquals(8, stateGraph.getStates().size());
+
+      stateGraphFactory.setKernelOnly(true);
+      LrStateGraph<LrOneItem> kernelGraph = stateGraphFactory.createStateGraph(grammarGraph);
+      assertEquals(8, kernelGraph.getKernels().size());
+      assertEquals(stateGraph.getStates(), kernelGraph.getStates());
+      assertEquals(stateGraph.getTransitions(), kernelGraph.getTransitions());
+   }
+
+   @Test
+   public void testParallel() {
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = a A d"));
+      productions.add(syntax.parseProduction("S = b B d"));
+      productions.add(syntax.parseProduction("S = a B e"));
+      productions.add(syntax.parseProduction("S = b A e"));
+      productions.add(syntax.parseProduction("S = S c"));
+      productions.add(syntax.parseProduction("A = c"));
+      productions.add(syntax.parseProduction("B = c"));
+
+      GrammarGraph grammarGraph = newGrammarGraph(productions);
+
+      final ForkJoinPool pool = new ForkJoinPool(4);
+      try {
+         for (MergeMode mergeMode : MergeMode.values()) {
+            LrOneStateGraphFactory stateGraphFactory = new LrOneStateGraphFactory(mergeMode);
+            LrStateGraph<LrOneItem> stateGraph = stateGraphFactory.createStateGraph(grammarGraph);
+
+            stateGraphFactory.setPool(pool);
+            LrStateGraph<LrOneItem> parallelGraph = stateGraphFactory.createStateGraph(grammarGraph);
+            assertEquals(stateGraph.getStates(), parallelGraph.getStates());
+            assertEquals(stateGraph.getTransitions(), parallelGraph.getTransitions());
+         }
+      }
+      finally {
+         pool.shutdown();
+      }
    }
 
    @Test
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr.zero;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.sourcepit.lalr.core.grammar.AbstractSymbol;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.SimpleSyntax;
+import org.sourcepit.lalr.core.grammar.Syntax;
+
+public class LrZeroItemSetTest {
+
+   private static Grammar newGrammar() {
+      Syntax syntax = new SimpleSyntax();
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A A"));
+      productions.add(syntax.parseProduction("A = a A"));
+      productions.add(syntax.parseProduction("A = b"));
+      return new Grammar(syntax, productions);
+   }
+
+   @Test
+   public void testCodec() {
+      Grammar grammar = newGrammar();
+      LrZeroItemCodec codec = new LrZeroItemCodec(grammar);
+
+      // start production (1 symbol) + S = A A + A = a A + A = b
+      assertEquals(2 + 3 + 3 + 2, codec.getItemCount());
+      assertEquals("S$start = .S", codec.decode(codec.getStartItem()).toString());
+      assertEquals(-1, codec.getProductionIndex(codec.getStartItem()));
+
+      Production pa1 = grammar.getProductions().get(1);
+      int item = codec.encode(pa1, 1);
+      assertEquals("A = a .A", codec.decode(item).toString());
+      assertEquals(1, codec.getProductionIndex(item));
+      assertEquals(1, codec.getDot(item));
+      assertEquals(grammar.getSymbolId(grammar.getVariable("A")), codec.getExpectedSymbol(item));
+      assertTrue(codec.isKernelItem(item));
+      assertFalse(codec.isKernelItem(codec.encode(pa1, 0)));
+      assertTrue(codec.isFinal(codec.encode(pa1, 2)));
+      assertEquals(-1, codec.getExpectedSymbol(codec.encode(pa1, 2)));
+
+      for (int i = 0; i < codec.getItemCount(); i++) {
+         assertEquals(i, codec.encode(codec.decode(i)));
+      }
+
+      int[] initialItems = codec.getInitialItems(grammar.getSymbolId(grammar.getVariable("A")));
+      assertArrayEquals(new int[] { codec.encode(pa1, 0), codec.encode(grammar.getProductions().get(2), 0) },
+         initialItems);
+      assertEquals(0, codec.getInitialItems(grammar.getSymbolId(grammar.getTerminals().get(0))).length);
+   }
+
+   @Test
+   public void testClosureTemplates() {
+      Syntax syntax = new SimpleSyntax();
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A"));
+      productions.add(syntax.parseProduction("A = B c"));
+      productions.add(syntax.parseProduction("A = a"));
+      productions.add(syntax.parseProduction("B = A b"));
+      productions.add(syntax.parseProduction("C = c"));
+      Grammar grammar = new Grammar(syntax, productions);
+      LrZeroItemCodec codec = new LrZeroItemCodec(grammar);
+
+      assertNull(codec.getClosureTemplate(grammar.getSymbolId(grammar.getTerminals().get(0))));
+
+      // A pulls in B, which pulls in A again
+      long[] template = codec.getClosureTemplate(grammar.getSymbolId(grammar.getVariable("A")));
+      assertEquals(codec.getWordCount(), template.length);
+      Set<String> items = new LinkedHashSet<>();
+      for (int item = 0; item < codec.getItemCount(); item++) {
+         if ((template[item >> 6] & (1L << item)) != 0) {
+            items.add(codec.decode(item).toString());
+         }
+      }
+      assertEquals("[A = .B c, A = .a, B = .A b]", items.toString());
+
+      LrZeroItemSet closure = new LrZeroClosureFunction().closure(codec,
+         new int[] { codec.encode(grammar.getProductions().get(0), 0), codec.encode(grammar.getProductions().get(4), 1) });
+      assertEquals("[C = c., S = .A, A = .B c, A = .a, B = .A b]", closure.toString());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testEncodeUnknownProduction() {
+      LrZeroItemCodec codec = new LrZeroItemCodec(newGrammar());
+      codec.encode(new SimpleSyntax().parseProduction("X = y"), 0);
+   }
+
+   @Test
+   public void testCanonicalOrder() {
+      Grammar grammar = newGrammar();
+      LrZeroItemCodec codec = new LrZeroItemCodec(grammar);
+      Production ps = grammar.getProductions().get(0);
+      Production pa1 = grammar.getProductions().get(1);
+      Production pa2 = grammar.getProductions().get(2);
+
+      int[] items = new int[] { codec.encode(pa2, 0), codec.encode(pa1, 1), codec.encode(pa1, 0), codec.encode(ps, 1),
+         codec.encode(pa1, 1) };
+      LrZeroItemSet itemSet = new LrZeroItemSet(codec, items);
+      assertEquals(4, itemSet.size());
+      assertEquals(2, itemSet.getKernelSize());
+      assertEquals("[S = A .A, A = a .A, A = .a A, A = .b]", itemSet.toString());
+
+      assertTrue(itemSet.contains(codec.encode(pa1, 0)));
+      assertFalse(itemSet.contains(codec.encode(pa1, 2)));
+      assertTrue(itemSet.contains(new LrZeroItem(pa2, 0)));
+      assertFalse(itemSet.contains(new LrZeroItem(pa2, 1)));
+      assertFalse(itemSet.contains(new LrZeroItem(new SimpleSyntax().parseProduction("X = y"), 0)));
+   }
+
+   @Test
+   public void testSetContract() {
+      Grammar grammar = newGrammar();
+      LrZeroItemCodec codec = new LrZeroItemCodec(grammar);
+      Production pa1 = grammar.getProductions().get(1);
+      Production pa2 = grammar.getProductions().get(2);
+
+      LrZeroItemSet itemSet = new LrZeroItemSet(codec, new int[] { codec.encode(pa2, 0), codec.encode(pa1, 1) });
+
+      Set<LrZeroItem> expected = new LinkedHashSet<>();
+      expected.add(new LrZeroItem(pa1, 1));
+      expected.add(new LrZeroItem(pa2, 0));
+
+      assertEquals(expected, itemSet);
+      assertEquals(itemSet, expected);
+      assertEquals(expected.hashCode(), itemSet.hashCode());
+
+      LrZeroItemSet other = new LrZeroItemSet(new LrZeroItemCodec(grammar), codec.encode(expected));
+      assertEquals(itemSet, other);
+      assertEquals(itemSet.hashCode(), other.hashCode());
+   }
+
+   @Test
+   public void testGotoOnPackedItems() {
+      Grammar grammar = newGrammar();
+      LrZeroClosureFunction closureFunction = new LrZeroClosureFunction();
+      LrZeroGotoFunction gotoFunction = new LrZeroGotoFunction(closureFunction);
+
+      LrZeroItemCodec codec = closureFunction.getCodec(grammar);
+      assertSame(codec, closureFunction.getCodec(grammar));
+
+      LrZeroItemSet closure = closureFunction.closure(codec, new int[] { codec.getStartItem() });
+      assertEquals("[S$start = .S, S = .A A, A = .a A, A = .b]", closure.toString());
+
+      Map<AbstractSymbol, Set<LrZeroItem>> symbolToClosure = gotoFunction.apply(grammar, closure);
+      assertEquals("{S=[S$start = S.], A=[S = A .A, A = .a A, A = .b], a=[A = a .A, A = .a A, A = .b], b=[A = b.]}",
+         symbolToClosure.toString());
+   }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.lalr.core.lr.zero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Test;
+import org.sourcepit.lalr.core.grammar.AbstractSymbol;
+import org.sourcepit.lalr.core.grammar.Grammar;
+import org.sourcepit.lalr.core.grammar.Production;
+import org.sourcepit.lalr.core.grammar.SimpleSyntax;
+import org.sourcepit.lalr.core.grammar.Syntax;
+import org.sourcepit.lalr.core.lr.AbstractLrStateGraphFactory;
+import org.sourcepit.lalr.core.lr.LrStateGraph;
+import org.sourcepit.lalr.core.lr.LrStateGraphMonitor;
+
+public class LrZeroStateGraphFactoryTest {
+
+   private static Grammar newGrammar() {
+      Syntax syntax = new SimpleSyntax();
+      List<Production> productions = new ArrayList<>();
+      productions.add(syntax.parseProduction("S = A A"));
+      productions.add(syntax.parseProduction("A = a A"));
+      productions.add(syntax.parseProduction("A = b"));
+      return new Grammar(syntax, productions);
+   }
+
+   @Test
+   public void testBreadthFirstNumbering() {
+      LrStateGraph<LrZeroItem> stateGraph = new LrZeroStateGraphFactory().createStateGraph(newGrammar());
+      assertEquals(7, stateGraph.getStates().size());
+      assertEquals("[S$start = .S, S = .A A, A = .a A, A = .b]", stateGraph.getStates().get(0).toString());
+      assertEquals("[S$start = S.]", stateGraph.getStates().get(1).toString());
+      assertEquals("[S = A .A, A = .a A, A = .b]", stateGraph.getStates().get(2).toString());
+      assertEquals("[A = a .A, A = .a A, A = .b]", stateGraph.getStates().get(3).toString());
+      assertEquals("[A = b.]", stateGraph.getStates().get(4).toString());
+      assertEquals("[S = A A.]", stateGraph.getStates().get(5).toString());
+      assertEquals("[A = a A.]", stateGraph.getStates().get(6).toString());
+      assertEquals("{S=1, A=2, a=3, b=4}", stateGraph.getTransitions().get(0).toString());
+      assertEquals("{A=6, a=3, b=4}", stateGraph.getTransitions().get(3).toString());
+   }
+
+   @Test
+   public void testNumberingIndependentOfGotoOrder() {
+      final LrZeroClosureFunction closureFunction = new LrZeroClosureFunction();
+      final LrZeroGotoFunction gotoFunction = new LrZeroGotoFunction(closureFunction);
+      AbstractLrStateGraphFactory<Grammar, LrZeroItem> factory = new AbstractLrStateGraphFactory<Grammar, LrZeroItem>(
+         closureFunction, (grammar, closure) -> {
+            // reverse the order of the transitions
+            final List<Map.Entry<AbstractSymbol, Set<LrZeroItem>>> entries = new ArrayList<>(
+               gotoFunction.apply(grammar, closure).entrySet());
+            Collections.reverse(entries);
+            final Map<AbstractSymbol, Set<LrZeroItem>> result = new LinkedHashMap<>();
+            for (Map.Entry<AbstractSymbol, Set<LrZeroItem>> entry : entries) {
+               result.put(entry.getKey(), entry.getValue());
+            }
+            return result;
+         }) {
+         @Override
+         protected Grammar getGrammar(Grammar grammar) {
+            return grammar;
+         }
+
+         @Override
+         protected LrZeroItem newStartItem(Grammar grammar, Production startProduction) {
+            return new LrZeroItem(startProduction, 0);
+         }
+      };
+
+      Grammar grammar = newGrammar();
+      LrStateGraph<LrZeroItem> expected = new LrZeroStateGraphFactory().createStateGraph(grammar);
+      LrStateGraph<LrZeroItem> stateGraph = factory.createStateGraph(grammar);
+      assertEquals(expected.getStates(), stateGraph.getStates());
+      assertEquals(expected.getTransitions().toString(), stateGraph.getTransitions().toString());
+   }
+
+   @Test
+   public void testKernelOnly() {
+      Grammar grammar = newGrammar();
+      LrStateGraph<LrZeroItem> expected = new LrZeroStateGraphFactory().createStateGraph(grammar);
+
+      LrZeroStateGraphFactory factory = new LrZeroStateGraphFactory();
+      factory.setKernelOnly(true);
+      LrStateGraph<LrZeroItem> stateGraph = factory.createStateGraph(grammar);
+
+      assertTrue(stateGraph.isKernelOnly());
+      assertEquals("[S$start = .S]", stateGraph.getKernels().get(0).toString());
+      assertEquals("[S = A .A]", stateGraph.getKernels().get(2).toString());
+      assertEquals(expected.getStates(), stateGraph.getStates());
+      assertSame(stateGraph.getStates().get(2), stateGraph.getStates().get(2));
+      assertEquals(expected.getTransitions(), stateGraph.getTransitions());
+   }
+
+   @Test
+   public void testProgress() {
+      final List<String> progress = new ArrayList<>();
+      LrStateGraphMonitor monitor = new LrStateGraphMonitor() {
+         @Override
+         public void progress(int statesDiscovered, int statesProcessed, long itemsProcessed) {
+            progress.add(statesDiscovered + "/" + statesProcessed + "/" + itemsProcessed);
+         }
+
+         @Override
+         public boolean isCanceled() {
+            return false;
+         }
+      };
+      new LrZeroStateGraphFactory().createStateGraph(newGrammar(), monitor);
+      assertEquals("[5/1/4, 5/2/5, 6/3/8, 7/4/11, 7/5/12, 7/6/13, 7/7/14]", progress.toString());
+   }
+
+   @Test(expected = CancellationException.class)
+   public void testCancel() {
+      LrStateGraphMonitor monitor = new LrStateGraphMonitor() {
+         private int processed;
+
+         @Override
+         public void progress(int statesDiscovered, int statesProcessed, long itemsProcessed) {
+            processed = statesProcessed;
+         }
+
+         @Override
+         public boolean isCanceled() {
+            return processed == 2;
+         }
+      };
+      new LrZeroStateGraphFactory().createStateGraph(newGrammar(), monitor);
+   }
+
+   @Test
+   public void testDeepGrammar() {
+      // a chain of variables whose states would be discovered through a deep recursion in depth-first order
+      final int depth = 5000;
+      Syntax syntax = new SimpleSyntax();
+      List<Production> productions = new ArrayList<>();
+      for (int i = 0; i < depth; i++) {
+         productions.add(syntax.parseProduction("V" + i + " = a V" + (i + 1)));
+      }
+      productions.add(syntax.parseProduction("V" + depth + " = b"));
+      Grammar grammar = new Grammar(syntax, productions);
+
+      LrStateGraph<LrZeroItem> stateGraph = new LrZeroStateGraphFactory().createStateGraph(grammar);
+      assertTrue(stateGraph.getStates().size() > depth);
+   }
+}